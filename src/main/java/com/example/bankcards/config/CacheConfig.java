@@ -0,0 +1,80 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.entity.CardTransaction;
+import com.example.bankcards.security.VerifiedToken;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Конфигурация локальных кэшей приложения
+ */
+
+@Configuration
+public class CacheConfig {
+
+    /**
+     * Кэш выполненных переводов по ключу идемпотентности.
+     * <p>
+     * Повторы запроса клиентом обычно приходят в течение нескольких секунд, поэтому кэш ограничен по размеру
+     * и времени жизни, а источником истины остаётся уникальный индекс в журнале операций
+     * </p>
+     */
+    @Bean
+    public Cache<String, CardTransaction> transferIdempotencyCache(
+            @Value("${card.transfer.idempotency.cache-size:10000}") long maximumSize,
+            @Value("${card.transfer.idempotency.cache-ttl:10m}") Duration ttl) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Кэш проверенных JWT по хэшу токена.
+     * <p>
+     * Клиенты повторяют один и тот же токен весь срок его действия, поэтому повторная проверка подписи
+     * заменяется поиском в кэше. Запись живёт до истечения токена, но не дольше {@code jwt.verified-cache.max-ttl},
+     * а число записей ограничено. Попадания и промахи публикуются в метриках {@code cache.gets}
+     * с тегом {@code cache=jwt-verified-tokens}
+     * </p>
+     */
+    @Bean
+    public Cache<String, VerifiedToken> verifiedTokenCache(
+            @Value("${jwt.verified-cache.size:100000}") long maximumSize,
+            @Value("${jwt.verified-cache.max-ttl:15m}") Duration maxTtl,
+            MeterRegistry meterRegistry) {
+        Cache<String, VerifiedToken> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                        long untilExpiry = TimeUnit.MILLISECONDS.toNanos(value.expiresAt() - System.currentTimeMillis());
+                        return Math.max(0, Math.min(untilExpiry, maxTtl.toNanos()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken value, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken value, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt-verified-tokens");
+    }
+}
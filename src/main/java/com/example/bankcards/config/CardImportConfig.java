@@ -0,0 +1,36 @@
+package com.example.bankcards.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Конфигурация массового импорта карт
+ */
+
+@Configuration
+public class CardImportConfig {
+
+    /**
+     * Пул потоков, в котором строки файла импорта разбираются, проверяются и шифруются.
+     * <p>
+     * Очередь задач ограничивает сам импорт: он держит в работе не больше {@code card.import.max-in-flight}
+     * частей файла, поэтому размер пула определяет только параллелизм, а не потребление памяти
+     * </p>
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService cardImportExecutor(@Value("${card.import.workers:4}") int workers) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "card-import-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(workers, threadFactory);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.bankcards.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Конфигурация фоновой перешифровки номеров карт
+ */
+
+@Configuration
+public class CardReEncryptionConfig {
+
+    /**
+     * Поток, в котором перешифровка обходит карты и сохраняет порции, чтобы не занимать поток запроса
+     * или запуска приложения
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService cardReEncryptionCoordinator() {
+        return Executors.newSingleThreadExecutor(threadFactory("card-re-encryption"));
+    }
+
+    /**
+     * Пул потоков, в котором номера порции расшифровываются и шифруются активным ключом.
+     * Размер пула ограничивает долю процессора, которую забирает перешифровка у обработки запросов
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService cardReEncryptionExecutor(@Value("${card.re-encryption.workers:2}") int workers) {
+        return Executors.newFixedThreadPool(workers, threadFactory("card-re-encryption-worker"));
+    }
+
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.bankcards.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Конфигурация проверки и хэширования паролей
+ */
+
+@Configuration
+public class PasswordHashingConfig {
+
+    /**
+     * Пул потоков, в котором выполняются вход и регистрация с их BCrypt.
+     * <p>
+     * Пул и очередь ограничены, поэтому всплеск входов занимает не больше {@code auth.password-hashing.workers}
+     * ядер, а не все потоки Tomcat, и не мешает картам и переводам. Задача сверх очереди сразу отклоняется.
+     * Загрузка пула публикуется в метриках {@code executor.*} с тегом {@code name=password-hashing}
+     * </p>
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService passwordHashingExecutor(@Value("${auth.password-hashing.workers:2}") int workers,
+                                                   @Value("${auth.password-hashing.queue-capacity:64}") int queueCapacity,
+                                                   MeterRegistry meterRegistry) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "password-hashing-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        return ExecutorServiceMetrics.monitor(meterRegistry, executor, "password-hashing");
+    }
+}
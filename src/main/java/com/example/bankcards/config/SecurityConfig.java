@@ -1,6 +1,10 @@
 package com.example.bankcards.config;
 
+import com.example.bankcards.security.AesGcmCardNumberCipher;
+import com.example.bankcards.security.CardKeyRing;
+import com.example.bankcards.security.CardNumberCipher;
 import com.example.bankcards.security.JwtAuthenticationFilter;
+import com.example.bankcards.security.RateLimitFilter;
 import com.example.bankcards.security.UserDetailsService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
@@ -11,13 +15,17 @@ import org.springframework.security.authentication.dao.DaoAuthenticationProvider
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.encrypt.Encryptors;
 import org.springframework.security.crypto.encrypt.TextEncryptor;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.util.Map;
+
 /**
  * Конфигурация Spring Security
  */
@@ -28,11 +36,12 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final RateLimitFilter rateLimitFilter;
     private final UserDetailsService userDetailsService;
 
     /**
      * Настройка эндпоинтов по которым могут ходить пользователи и доступы к ним, оставил открыми эндпоинты для
-     * аутентификации и свагера
+     * аутентификации и свагера. Лимит частоты запросов проверяется сразу после разбора JWT
      */
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
@@ -42,19 +51,46 @@ public class SecurityConfig {
                         .requestMatchers("/swagger-ui/**", "/v3/api-docs/**", "/auth/**", "/docs/**").permitAll()
                         .requestMatchers("/api/admin/**").hasRole("ADMIN")
                         .requestMatchers("/api/user/**").hasRole("USER")
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .anyRequest().permitAll()
                 )
-                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class);
 
         return http.build();
     }
 
     /**
-     * Создание PasswordEncoder
+     * Создание PasswordEncoder.
+     * <p>
+     * Новые пароли хэшируются алгоритмом {@code auth.password-encoder.algorithm} с настроенной стоимостью,
+     * а хэш получает префикс алгоритма, например {@code {bcrypt}}. Хэши без префикса, сохранённые до этого,
+     * проверяются BCrypt. Если хэш создан другим алгоритмом или с меньшей стоимостью, после успешного входа
+     * он пересчитывается через {@link UserDetailsService#updatePassword}
+     * </p>
+     *
+     * @param algorithm         алгоритм для новых хэшей: bcrypt или argon2
+     * @param bcryptStrength    стоимость BCrypt (log2 числа раундов)
+     * @param argon2Memory      память Argon2 в КиБ
+     * @param argon2Iterations  число проходов Argon2
+     * @param argon2Parallelism число потоков Argon2
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(
+            @Value("${auth.password-encoder.algorithm:bcrypt}") String algorithm,
+            @Value("${auth.password-encoder.bcrypt.strength:10}") int bcryptStrength,
+            @Value("${auth.password-encoder.argon2.memory:19456}") int argon2Memory,
+            @Value("${auth.password-encoder.argon2.iterations:2}") int argon2Iterations,
+            @Value("${auth.password-encoder.argon2.parallelism:1}") int argon2Parallelism) {
+        PasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        Map<String, PasswordEncoder> encoders = Map.of(
+                "bcrypt", bcrypt,
+                "argon2", new Argon2PasswordEncoder(16, 32, argon2Parallelism, argon2Memory, argon2Iterations)
+        );
+        DelegatingPasswordEncoder passwordEncoder = new DelegatingPasswordEncoder(algorithm, encoders);
+        passwordEncoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return passwordEncoder;
     }
 
     /**
@@ -67,13 +103,14 @@ public class SecurityConfig {
     }
 
     /**
-     * Создание DaoAuthenticationProvider
+     * Создание DaoAuthenticationProvider с пересчётом устаревших хэшей паролей при входе
      */
     @Bean
-    public DaoAuthenticationProvider authenticationProvider() {
+    public DaoAuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
         provider.setUserDetailsService(userDetailsService);
-        provider.setPasswordEncoder(passwordEncoder());
+        provider.setUserDetailsPasswordService(userDetailsService);
+        provider.setPasswordEncoder(passwordEncoder);
         return provider;
     }
 
@@ -89,4 +126,16 @@ public class SecurityConfig {
             @Value("${data.encryption.salt}") String salt) {
         return Encryptors.text(secretKey, salt);
     }
+
+    /**
+     * Создание шифрования номеров карт.
+     * Номера, сохранённые прежним TextEncryptor, расшифровываются им же до перешифровки в новый формат
+     *
+     * @param cardKeyRing   версионированные ключи шифрования номеров карт
+     * @param textEncryptor прежнее шифрование номеров карт
+     */
+    @Bean
+    public CardNumberCipher cardNumberCipher(CardKeyRing cardKeyRing, TextEncryptor textEncryptor) {
+        return new AesGcmCardNumberCipher(cardKeyRing, textEncryptor);
+    }
 }
@@ -1,21 +1,34 @@
 package com.example.bankcards.controller;
 
 import com.example.bankcards.dto.request.AuthRequestDto;
+import com.example.bankcards.dto.request.RefreshTokenRequestDto;
 import com.example.bankcards.dto.request.RegisterRequestDto;
 import com.example.bankcards.dto.response.AuthResponseDto;
+import com.example.bankcards.dto.response.JwksResponseDto;
+import com.example.bankcards.security.LoginAttemptLimiter;
+import com.example.bankcards.security.PasswordHashingDispatcher;
 import com.example.bankcards.service.AuthService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Контроллер для авторизации и регистрации пользователей
+ * <p>
+ * Вход и регистрация проверяют и хэшируют пароль через BCrypt, поэтому выполняются в отдельном пуле
+ * {@link PasswordHashingDispatcher}, а не в потоке Tomcat
+ * </p>
  */
 
 @RestController
@@ -24,17 +37,50 @@ import org.springframework.web.bind.annotation.RestController;
 public class AuthController {
 
     private final AuthService authService;
+    private final PasswordHashingDispatcher passwordHashingDispatcher;
+    private final LoginAttemptLimiter loginAttemptLimiter;
 
     /**
-     * Метод для авторизации
+     * Метод для авторизации. Попытка сверх лимита по логину или адресу отклоняется до проверки пароля
      *
-     * @param request запрос на авторизацию
-     * @return jwt токен
+     * @param request     запрос на авторизацию
+     * @param httpRequest HTTP-запрос, из него берётся адрес клиента
+     * @return jwt токен и токен обновления
      */
 
     @PostMapping("/login")
-    public AuthResponseDto login(@Valid @RequestBody AuthRequestDto request) {
-        return authService.login(request);
+    public CompletableFuture<AuthResponseDto> login(@Valid @RequestBody AuthRequestDto request,
+                                                    HttpServletRequest httpRequest) {
+        loginAttemptLimiter.acquire(request.username(), httpRequest.getRemoteAddr());
+        return passwordHashingDispatcher.submit(() -> {
+            AuthResponseDto response = authService.login(request);
+            loginAttemptLimiter.reset(request.username());
+            return response;
+        });
+    }
+
+    /**
+     * Обновление истёкшего jwt токена без повторного ввода пароля
+     *
+     * @param request запрос с токеном обновления
+     * @return новый jwt токен и следующий токен обновления
+     */
+
+    @PostMapping("/refresh")
+    public AuthResponseDto refresh(@Valid @RequestBody RefreshTokenRequestDto request) {
+        return authService.refresh(request);
+    }
+
+    /**
+     * Выход с отзывом токена обновления
+     *
+     * @param request запрос с токеном обновления
+     */
+
+    @PostMapping("/logout")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void logout(@Valid @RequestBody RefreshTokenRequestDto request) {
+        authService.logout(request);
     }
 
     /**
@@ -45,9 +91,21 @@ public class AuthController {
      */
 
     @PostMapping("/register")
-    public ResponseEntity<String> register(@Valid @RequestBody RegisterRequestDto request) {
-        return ResponseEntity.status(HttpStatus.CREATED)
+    public CompletableFuture<ResponseEntity<String>> register(@Valid @RequestBody RegisterRequestDto request) {
+        return passwordHashingDispatcher.submit(() -> ResponseEntity.status(HttpStatus.CREATED)
                 .header(HttpHeaders.LOCATION)
-                .body(authService.register(request));
+                .body(authService.register(request)));
+    }
+
+    /**
+     * Открытые ключи проверки JWT (JWKS), чтобы токены могли проверять другие экземпляры и прокси
+     * без общего секрета
+     *
+     * @return набор открытых ключей
+     */
+
+    @GetMapping("/jwks.json")
+    public JwksResponseDto getJwks() {
+        return authService.getJwks();
     }
 }
@@ -1,28 +1,45 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.request.CardBatchTransferRequestDto;
+import com.example.bankcards.dto.request.CardBulkCreateRequestDto;
 import com.example.bankcards.dto.request.CardCreateRequestDto;
+import com.example.bankcards.dto.request.CardNumberRequestDto;
 import com.example.bankcards.dto.request.CardTransferRequestDto;
+import com.example.bankcards.dto.response.CardBatchTransferResponseDto;
+import com.example.bankcards.dto.response.CardImportResponseDto;
 import com.example.bankcards.dto.response.CardInfoResponseDto;
+import com.example.bankcards.dto.response.CardKeyRotationResponseDto;
+import com.example.bankcards.dto.response.CardTransactionPageResponseDto;
+import com.example.bankcards.entity.enums.CardImportFormat;
 import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.security.AuthenticatedUser;
+import com.example.bankcards.service.CardImportService;
+import com.example.bankcards.service.CardKeyService;
 import com.example.bankcards.service.CardService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
-import java.security.Principal;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -35,6 +52,8 @@ import java.util.UUID;
 public class CardController {
 
     private final CardService cardService;
+    private final CardImportService cardImportService;
+    private final CardKeyService cardKeyService;
 
     /* ======================================================
                             ADMIN
@@ -54,6 +73,35 @@ public class CardController {
         return cardService.createCard(request);
     }
 
+    /**
+     * Выпуск нескольких карт одним запросом
+     *
+     * @param request список карт для выпуска
+     * @return информация о созданных картах
+     */
+    @PostMapping("/admin/cards:bulk")
+    @ResponseStatus(HttpStatus.CREATED)
+    public List<CardInfoResponseDto> createCards(
+            @RequestBody @Valid CardBulkCreateRequestDto request
+    ) {
+        return cardService.createCards(request);
+    }
+
+    /**
+     * Потоковый импорт карт из CSV или NDJSON
+     *
+     * @param contentType формат файла
+     * @param body        тело запроса с файлом
+     * @return итоги импорта
+     */
+    @PostMapping(value = "/admin/cards:import", consumes = {CardImportFormat.CSV_VALUE, CardImportFormat.NDJSON_VALUE})
+    public CardImportResponseDto importCards(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body
+    ) {
+        return cardImportService.importCards(body, CardImportFormat.fromContentType(contentType));
+    }
+
     /**
      * Получение всех карт
      *
@@ -68,6 +116,41 @@ public class CardController {
         return cardService.getAllCards(ownerId, status, pageable);
     }
 
+    /**
+     * Выгрузка всех карт в формате NDJSON без постраничной загрузки
+     *
+     * @param response ответ, в который пишется выгрузка
+     */
+    @GetMapping(value = "/admin/cards:export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void exportCards(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        cardService.exportCards(response.getOutputStream());
+    }
+
+    /**
+     * Смена ключа шифрования номеров карт, сохранённые номера перешифровываются в фоне
+     *
+     * @return версия нового ключа
+     */
+    @PostMapping("/admin/cards:rotate-key")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public CardKeyRotationResponseDto rotateCardKey() {
+        return cardKeyService.rotateKey();
+    }
+
+    /**
+     * Поиск карты по номеру
+     *
+     * @param request номер карты
+     * @return информация о карте с маскированным номером
+     */
+    @PostMapping("/admin/cards:search")
+    public CardInfoResponseDto findCardByNumber(
+            @RequestBody @Valid CardNumberRequestDto request
+    ) {
+        return cardService.findByNumber(request.number());
+    }
+
     /**
      * Изменение статуса карты
      *
@@ -103,58 +186,96 @@ public class CardController {
     /**
      * Получение пользователем списка своих карт
      *
-     * @param principal объект с данными пользователя из Spring Security
-     * @param pageable  данные для страниц
+     * @param user     аутентифицированный пользователь
+     * @param pageable данные для страниц
      * @return страницы карт
      */
     @GetMapping("/user/cards")
     public Page<CardInfoResponseDto> getUserCards(
-            Principal principal,
+            AuthenticatedUser user,
             Pageable pageable
     ) {
-        return cardService.getUserCards(UUID.fromString(principal.getName()), pageable);
+        return cardService.getUserCards(user.id(), pageable);
     }
 
     /**
      * Блокировка своей карты
      *
-     * @param principal объект с данными пользователя из Spring Security
-     * @param cardId    идентификатор карты
+     * @param user   аутентифицированный пользователь
+     * @param cardId идентификатор карты
      * @return сообщение была ли заблокирована карта
      */
     @PatchMapping("/user/cards/{cardId}/block")
     public String blockOwnCard(
-            Principal principal,
+            AuthenticatedUser user,
             @PathVariable UUID cardId
     ) {
-        return cardService.blockOwnedCard(cardId, UUID.fromString(principal.getName()));
+        return cardService.blockOwnedCard(cardId, user.id());
     }
 
     /**
      * Перевод между своими картами
      *
-     * @param request запрос на перевод
+     * @param user           аутентифицированный пользователь
+     * @param request        запрос на перевод
+     * @param idempotencyKey ключ, с которым клиент может безопасно повторять запрос
      * @return сообщение прошел ли перевод
      */
     @PostMapping("/user/cards/transfer")
     public String transfer(
-            @RequestBody @Valid CardTransferRequestDto request
+            AuthenticatedUser user,
+            @RequestBody @Valid CardTransferRequestDto request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey
     ) {
-        return cardService.transfer(request);
+        return cardService.transfer(request, user.id(), idempotencyKey);
+    }
+
+    /**
+     * Пакетный перевод между своими картами в одной транзакции
+     *
+     * @param user    аутентифицированный пользователь
+     * @param request список переводов
+     * @return результат каждого перевода
+     */
+    @PostMapping("/user/cards/transfers:batch")
+    public CardBatchTransferResponseDto transferBatch(
+            AuthenticatedUser user,
+            @RequestBody @Valid CardBatchTransferRequestDto request
+    ) {
+        return cardService.transferBatch(request, user.id());
     }
 
     /**
      * Просмотр баланса своей карты
      *
-     * @param principal
-     * @param cardId
-     * @return
+     * @param user   аутентифицированный пользователь
+     * @param cardId идентификатор карты
+     * @return баланс карты
      */
     @GetMapping("/user/cards/{cardId}/balance")
     public BigDecimal getBalance(
-            Principal principal,
+            AuthenticatedUser user,
             @PathVariable UUID cardId
     ) {
-        return cardService.getCardBalance(cardId, UUID.fromString(principal.getName()));
+        return cardService.getCardBalance(cardId, user.id());
+    }
+
+    /**
+     * Просмотр истории переводов по своей карте
+     *
+     * @param user   аутентифицированный пользователь
+     * @param cardId идентификатор карты
+     * @param cursor курсор следующей страницы из предыдущего ответа
+     * @param size   размер страницы
+     * @return страница переводов и курсор следующей страницы
+     */
+    @GetMapping("/user/cards/{cardId}/transactions")
+    public CardTransactionPageResponseDto getTransactions(
+            AuthenticatedUser user,
+            @PathVariable UUID cardId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        return cardService.getCardTransactions(cardId, user.id(), cursor, size);
     }
 }
@@ -0,0 +1,21 @@
+package com.example.bankcards.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Builder;
+
+import java.util.List;
+
+/**
+ * DTO для пакетного перевода между картами
+ */
+
+@Builder
+public record CardBatchTransferRequestDto(
+        @NotEmpty
+        @Size(max = 1000, message = "В одном пакете может быть не больше 1000 переводов")
+        List<@NotNull @Valid CardTransferRequestDto> transfers
+) {
+}
@@ -0,0 +1,21 @@
+package com.example.bankcards.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Builder;
+
+import java.util.List;
+
+/**
+ * DTO для выпуска нескольких карт одним запросом
+ */
+
+@Builder
+public record CardBulkCreateRequestDto(
+        @NotEmpty
+        @Size(max = 1000, message = "За один запрос можно выпустить не больше 1000 карт")
+        List<@NotNull @Valid CardCreateRequestDto> cards
+) {
+}
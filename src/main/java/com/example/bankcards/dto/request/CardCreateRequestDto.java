@@ -6,6 +6,7 @@ import lombok.Builder;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.UUID;
 
 /**
  * DTO для создания карты
@@ -13,6 +14,9 @@ import java.time.LocalDate;
 
 @Builder
 public record CardCreateRequestDto(
+        @NotNull
+        UUID ownerId,
+
         @NotNull
         String number,
 
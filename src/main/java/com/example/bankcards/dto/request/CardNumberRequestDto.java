@@ -0,0 +1,15 @@
+package com.example.bankcards.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Builder;
+
+/**
+ * DTO для поиска карты по номеру, номер передаётся в теле запроса, чтобы не попадать в логи URL
+ */
+
+@Builder
+public record CardNumberRequestDto(
+        @NotBlank
+        String number
+) {
+}
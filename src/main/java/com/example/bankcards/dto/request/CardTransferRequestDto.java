@@ -17,9 +17,6 @@ public record CardTransferRequestDto(
 
         @NotNull
         @Positive(message = "Сумма перевода должна быть больше нуля")
-        BigDecimal amount,
-
-        @NotNull
-        UUID userId
+        BigDecimal amount
 ) {
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.example.bankcards.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+/**
+ * Запрос на обновление доступа или выход по токену обновления
+ */
+public record RefreshTokenRequestDto(
+
+        @NotBlank(message = "Refresh токен не может быть пустым")
+        @Size(max = 100, message = "Refresh токен должен быть не длиннее 100 символов")
+        String refreshToken
+) {
+}
@@ -1,9 +1,10 @@
 package com.example.bankcards.dto.response;
 
 /**
- * DTO ответа авторизации с токеном
+ * DTO ответа авторизации с токеном доступа и токеном для его обновления
  */
 public record AuthResponseDto(
-        String token
+        String token,
+        String refreshToken
 ) {
 }
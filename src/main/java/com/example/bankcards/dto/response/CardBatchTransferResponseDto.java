@@ -0,0 +1,19 @@
+package com.example.bankcards.dto.response;
+
+import lombok.Builder;
+
+import java.util.List;
+
+/**
+ * DTO с результатами пакетного перевода, результаты идут в том же порядке, что и переводы в запросе
+ */
+
+@Builder
+public record CardBatchTransferResponseDto(
+        int succeeded,
+
+        int failed,
+
+        List<CardTransferResultDto> results
+) {
+}
@@ -0,0 +1,15 @@
+package com.example.bankcards.dto.response;
+
+import lombok.Builder;
+
+/**
+ * DTO с ошибкой в строке файла импорта карт
+ */
+
+@Builder
+public record CardImportErrorDto(
+        long line,
+
+        String message
+) {
+}
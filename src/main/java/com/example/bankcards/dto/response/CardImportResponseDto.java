@@ -0,0 +1,19 @@
+package com.example.bankcards.dto.response;
+
+import lombok.Builder;
+
+import java.util.List;
+
+/**
+ * DTO с итогами импорта карт, список ошибок ограничен первыми строками с ошибками
+ */
+
+@Builder
+public record CardImportResponseDto(
+        long imported,
+
+        long failed,
+
+        List<CardImportErrorDto> errors
+) {
+}
@@ -0,0 +1,13 @@
+package com.example.bankcards.dto.response;
+
+import lombok.Builder;
+
+/**
+ * DTO с версией ключа шифрования номеров карт, созданного при смене ключа
+ */
+
+@Builder
+public record CardKeyRotationResponseDto(
+        int keyVersion
+) {
+}
@@ -0,0 +1,21 @@
+package com.example.bankcards.dto.response;
+
+import lombok.Builder;
+
+import java.util.List;
+
+/**
+ * DTO со страницей истории переводов по карте
+ * <p>
+ * Вместо номера страницы содержит курсор, который нужно передать для получения следующей страницы.
+ * Если курсор равен null, то страница последняя
+ * </p>
+ */
+
+@Builder
+public record CardTransactionPageResponseDto(
+        List<CardTransactionResponseDto> content,
+
+        String nextCursor
+) {
+}
@@ -0,0 +1,25 @@
+package com.example.bankcards.dto.response;
+
+import lombok.Builder;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * DTO для ответа пользователю с данными о переводе по карте
+ */
+
+@Builder
+public record CardTransactionResponseDto(
+        Long id,
+
+        UUID fromCardId,
+
+        UUID toCardId,
+
+        BigDecimal amount,
+
+        Instant createdAt
+) {
+}
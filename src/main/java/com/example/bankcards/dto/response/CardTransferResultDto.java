@@ -0,0 +1,17 @@
+package com.example.bankcards.dto.response;
+
+import lombok.Builder;
+
+/**
+ * DTO с результатом одного перевода из пакета
+ */
+
+@Builder
+public record CardTransferResultDto(
+        int index,
+
+        boolean success,
+
+        String message
+) {
+}
@@ -0,0 +1,25 @@
+package com.example.bankcards.dto.response;
+
+import lombok.Builder;
+
+/**
+ * DTO открытого ключа проверки JWT в формате JWK (RFC 7517, RFC 7518)
+ */
+
+@Builder
+public record JwkDto(
+        String kty,
+
+        String crv,
+
+        String kid,
+
+        String use,
+
+        String alg,
+
+        String x,
+
+        String y
+) {
+}
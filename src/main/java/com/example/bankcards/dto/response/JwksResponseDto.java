@@ -0,0 +1,15 @@
+package com.example.bankcards.dto.response;
+
+import lombok.Builder;
+
+import java.util.List;
+
+/**
+ * DTO с набором открытых ключей проверки JWT (JWKS)
+ */
+
+@Builder
+public record JwksResponseDto(
+        List<JwkDto> keys
+) {
+}
@@ -9,11 +9,13 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnTransformer;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -22,7 +24,10 @@ import java.util.UUID;
 /**
  * Сущность содержащая информацию о карте пользователя
  * <p>
- * Класс предоставляет карту пользователя и содержит её характеристики
+ * Класс предоставляет карту пользователя и содержит её характеристики. Номер, последние цифры и слепой индекс
+ * задаются при выпуске, а дальше их меняют только фоновые задачи через JDBC, поэтому UPDATE сущности их
+ * не содержит: изменение баланса не перезаписывает номер, перешифрованный фоновой задачей, а UPDATE
+ * одинаковы для всех карт и уходят JDBC-пакетами
  * </p>
  *
  * @author Smirnov Daniil
@@ -34,26 +39,41 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-@Table(name = "card", schema = "bank_rest")
+@Table(name = "card")
 public class Card {
 
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
 
-    @Column(name = "card_number", nullable = false, length = 19)
+    @Column(name = "card_number", nullable = false, length = 128, updatable = false)
     private String number;
 
+    @Column(name = "last4", length = 4, updatable = false)
+    private String last4;
+
+    @Column(name = "number_hash", length = 64, unique = true, updatable = false)
+    private String numberHash;
+
     @Column(name = "owner_id", nullable = false)
     private UUID ownerId;
 
     @Column(name = "expiry_date", nullable = false)
     private LocalDate expiryDate;
 
+    /**
+     * В БД колонка имеет тип {@code card_status}, а драйвер передаёт строку как varchar, поэтому значение
+     * явно приводится к типу перечисления при вставке и обновлении
+     */
     @Enumerated(EnumType.STRING)
+    @ColumnTransformer(write = "cast(? as card_status)")
     @Column(name = "status", nullable = false)
     private CardStatus status;
 
     @Column(name = "balance", nullable = false, precision = 15, scale = 2)
     private BigDecimal balance;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
 }
@@ -0,0 +1,59 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Сущность содержащая информацию о переводе между картами
+ * <p>
+ * Запись журнала операций: создаётся в той же транзакции, что и изменение балансов, и больше не изменяется.
+ * Идентификатор берётся из последовательности с шагом 50, поэтому вставки можно объединять в JDBC batch,
+ * а новые строки всегда попадают в конец индекса первичного ключа
+ * </p>
+ *
+ * @author Smirnov Daniil
+ */
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "card_transaction")
+public class CardTransaction {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "card_transaction_id_seq")
+    @SequenceGenerator(name = "card_transaction_id_seq", sequenceName = "card_transaction_id_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "from_card_id", nullable = false)
+    private UUID fromCardId;
+
+    @Column(name = "to_card_id", nullable = false)
+    private UUID toCardId;
+
+    @Column(name = "amount", nullable = false, precision = 15, scale = 2)
+    private BigDecimal amount;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "idempotency_key", unique = true, length = 100, updatable = false)
+    private String idempotencyKey;
+}
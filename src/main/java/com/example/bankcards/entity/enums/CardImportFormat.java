@@ -0,0 +1,26 @@
+package com.example.bankcards.entity.enums;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Enum с форматами файла массового импорта карт, формат определяется по Content-Type запроса
+ */
+
+public enum CardImportFormat {
+    CSV,
+    NDJSON;
+
+    public static final String CSV_VALUE = "text/csv";
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+
+    /**
+     * Определяет формат по заголовку Content-Type
+     *
+     * @param contentType значение заголовка Content-Type
+     * @return формат импорта
+     */
+    public static CardImportFormat fromContentType(String contentType) {
+        MediaType type = MediaType.parseMediaType(contentType);
+        return MediaType.parseMediaType(NDJSON_VALUE).isCompatibleWith(type) ? NDJSON : CSV;
+    }
+}
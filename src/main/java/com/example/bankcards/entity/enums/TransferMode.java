@@ -0,0 +1,17 @@
+package com.example.bankcards.entity.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Enum со способами выполнения перевода между картами
+ */
+
+@AllArgsConstructor
+@Getter
+public enum TransferMode {
+    PESSIMISTIC("Блокировка строк обеих карт через SELECT ... FOR UPDATE"),
+    ATOMIC("Условные UPDATE списания и зачисления без предварительного чтения карт"),
+    OPTIMISTIC("Проверка версии карт при сохранении и повтор перевода при конфликте");
+    final String description;
+}
@@ -0,0 +1,24 @@
+package com.example.bankcards.exception;
+
+
+/**
+ * Исключение, выбрасываемое при попытке выпустить карту с номером, который уже есть в системе.
+ * <p>
+ * Это подкласс RuntimeException и может использоваться для обработки ситуаций, когда номер новой карты
+ * совпадает с номером существующей
+ * </p>
+ *
+ * @author Smirnov Daniil
+ */
+
+public class CardAlreadyExistsException extends RuntimeException {
+    /**
+     * Создает новый объект исключения с заданным сообщением.
+     *
+     * @param message сообщение об ошибке
+     */
+
+    public CardAlreadyExistsException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.bankcards.exception;
+
+import lombok.Getter;
+
+/**
+ * Исключение, выбрасываемое когда запрос отклонён из-за перегрузки или превышения лимита
+ * <p>
+ * Это подкласс RuntimeException и может использоваться для обработки ситуаций, когда сервис не может принять
+ * запрос сейчас и клиенту следует повторить его не раньше чем через {@code retryAfterSeconds} секунд
+ * </p>
+ *
+ * @author Smirnov Daniil
+ */
+
+@Getter
+public class TooManyRequestsException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    /**
+     * Создает новый объект исключения с заданным сообщением и повтором через секунду.
+     *
+     * @param message сообщение об ошибке
+     */
+
+    public TooManyRequestsException(String message) {
+        this(message, 1);
+    }
+
+    /**
+     * Создает новый объект исключения с заданным сообщением и временем до повтора.
+     *
+     * @param message           сообщение об ошибке
+     * @param retryAfterSeconds через сколько секунд можно повторить запрос
+     */
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.bankcards.exception;
+
+/**
+ * Исключение, выбрасываемое когда перевод не удалось выполнить из-за параллельного изменения карт
+ * <p>
+ * Это подкласс RuntimeException и может использоваться для обработки ситуаций, когда состояние карт
+ * изменилось во время перевода и запрос можно безопасно повторить
+ * </p>
+ *
+ * @author Smirnov Daniil
+ */
+
+public class TransferConflictException extends RuntimeException {
+
+    /**
+     * Создает новый объект исключения с заданным сообщением.
+     *
+     * @param message сообщение об ошибке
+     */
+
+    public TransferConflictException(String message) {
+        super(message);
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.bankcards.exception.handler;
 
 import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.CardAlreadyExistsException;
 import com.example.bankcards.exception.CardIsNotActiveException;
 import com.example.bankcards.exception.CardNotOwnedException;
 import com.example.bankcards.exception.ExpiredTokenException;
@@ -8,8 +9,14 @@ import com.example.bankcards.exception.InsufficientBalanceException;
 import com.example.bankcards.exception.InvalidTokenException;
 import com.example.bankcards.exception.LoginAlreadyExistsException;
 import com.example.bankcards.exception.NotFoundException;
+import com.example.bankcards.exception.TooManyRequestsException;
+import com.example.bankcards.exception.TransferConflictException;
+import com.example.bankcards.exception.UnauthorizedException;
 import com.example.bankcards.util.ExceptionMessages;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.validation.ObjectError;
@@ -56,6 +63,19 @@ public class RestExceptionHandler {
         return new ErrorResponseDto(ex.getMessage());
     }
 
+    /**
+     * Обрабатывает исключение CardAlreadyExistsException и возвращает HTTP-ответ с кодом 400 BAD_REQUEST
+     *
+     * @param ex исключение CardAlreadyExistsException
+     * @return ответ клиенту с сообщением об ошибке и кодом состояния 400
+     */
+
+    @ExceptionHandler(CardAlreadyExistsException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponseDto handleCardAlreadyExists(CardAlreadyExistsException ex) {
+        return new ErrorResponseDto(ex.getMessage());
+    }
+
     /**
      * Обрабатывает исключение CardIsNotActiveException и возвращает HTTP-ответ с кодом 400 BAD_REQUEST
      *
@@ -127,6 +147,19 @@ public class RestExceptionHandler {
         return new ErrorResponseDto(ex.getMessage());
     }
 
+    /**
+     * Обрабатывает исключение UnauthorizedException и возвращает HTTP-ответ с кодом 401 UNAUTHORIZED
+     *
+     * @param ex исключение UnauthorizedException
+     * @return ответ клиенту с сообщением об ошибке и кодом состояния 401
+     */
+
+    @ExceptionHandler(UnauthorizedException.class)
+    @ResponseStatus(HttpStatus.UNAUTHORIZED)
+    public ErrorResponseDto handleUnauthorized(UnauthorizedException ex) {
+        return new ErrorResponseDto(ex.getMessage());
+    }
+
     /**
      * Обрабатывает исключение BadCredentialsException и возвращает HTTP-ответ с кодом 401 UNAUTHORIZED
      *
@@ -176,4 +209,41 @@ public class RestExceptionHandler {
         return new ErrorResponseDto(e.getMessage());
     }
 
-}
\ No newline at end of file
+    /**
+     * Обрабатывает исключение TransferConflictException и возвращает HTTP-ответ с кодом 409 CONFLICT
+     *
+     * @param e исключение TransferConflictException
+     * @return ответ клиенту с сообщением об ошибке и кодом состояния 409
+     */
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(TransferConflictException.class)
+    public ErrorResponseDto handleTransferConflict(TransferConflictException e) {
+        return new ErrorResponseDto(e.getMessage());
+    }
+
+    /**
+     * Обрабатывает исключение OptimisticLockingFailureException, возникающее когда сущность была изменена
+     * параллельным запросом, и возвращает HTTP-ответ с кодом 409 CONFLICT
+     *
+     * @return ответ клиенту с сообщением об ошибке и кодом состояния 409
+     */
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ErrorResponseDto handleOptimisticLockingFailure() {
+        return new ErrorResponseDto(ExceptionMessages.CONCURRENT_MODIFICATION.getDescription());
+    }
+
+    /**
+     * Обрабатывает исключение TooManyRequestsException и возвращает HTTP-ответ с кодом 429 TOO_MANY_REQUESTS
+     * и заголовком Retry-After
+     *
+     * @param e исключение TooManyRequestsException
+     * @return ответ клиенту с сообщением об ошибке и кодом состояния 429
+     */
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ErrorResponseDto> handleTooManyRequests(TooManyRequestsException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(new ErrorResponseDto(e.getMessage()));
+    }
+}
@@ -1,13 +1,26 @@
 package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.Card;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 /**
  * Репозиторий для работы с таблицей карт в базе данных
@@ -24,4 +37,93 @@ public interface CardRepository extends JpaRepository<Card, UUID>, JpaSpecificat
      * @return страница карт всех пользователя
      */
     Page<Card> findAllByOwnerId(UUID userId, Pageable pageable);
+
+    /**
+     * Ищет карту по слепому индексу номера, поиск идёт по уникальному индексу
+     *
+     * @param numberHash слепой индекс номера карты
+     * @return карта, если она есть
+     */
+    Optional<Card> findByNumberHash(String numberHash);
+
+    /**
+     * Проверяет есть ли карта с хотя бы одним из номеров
+     *
+     * @param numberHashes слепые индексы номеров карт
+     * @return true если хотя бы один номер уже занят
+     */
+    boolean existsByNumberHashIn(Collection<String> numberHashes);
+
+    /**
+     * Возвращает все карты потоком, который читается из курсора базы данных порциями по 1000 строк.
+     * <p>
+     * Поток нужно читать внутри транзакции и закрыть после использования. Карты загружаются только для чтения,
+     * без снимков для dirty checking
+     * </p>
+     *
+     * @return поток всех карт
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select c from Card c")
+    Stream<Card> streamAll();
+
+    /**
+     * Возвращает карты по идентификаторам и блокирует их строки (SELECT ... FOR UPDATE) до конца транзакции.
+     * <p>
+     * Строки блокируются в порядке возрастания идентификатора, поэтому два встречных перевода
+     * между одними и теми же картами всегда захватывают блокировки в одном порядке и не приводят к deadlock
+     * </p>
+     *
+     * @param ids идентификаторы карт
+     * @return заблокированные карты, отсортированные по идентификатору
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Card c where c.id in :ids order by c.id")
+    List<Card> findAllByIdInForUpdate(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Списывает сумму с активной карты пользователя одним UPDATE, если на ней достаточно средств.
+     * <p>
+     * Чтение и проверка баланса выполняются самой базой данных внутри UPDATE, поэтому карта не загружается
+     * в приложение, а блокировка строки держится только до конца короткой транзакции
+     * </p>
+     *
+     * @param cardId  идентификатор карты
+     * @param ownerId идентификатор владельца карты
+     * @param amount  сумма списания
+     * @return количество изменённых строк: 1 если списание прошло, 0 если условие не выполнено
+     */
+    @Modifying
+    @Query("""
+            update Card c set c.balance = c.balance - :amount, c.version = c.version + 1
+            where c.id = :cardId
+              and c.ownerId = :ownerId
+              and c.status = com.example.bankcards.entity.enums.CardStatus.ACTIVE
+              and c.balance >= :amount
+            """)
+    int debitActiveCard(@Param("cardId") UUID cardId,
+                        @Param("ownerId") UUID ownerId,
+                        @Param("amount") BigDecimal amount);
+
+    /**
+     * Зачисляет сумму на активную карту пользователя одним UPDATE
+     *
+     * @param cardId  идентификатор карты
+     * @param ownerId идентификатор владельца карты
+     * @param amount  сумма зачисления
+     * @return количество изменённых строк: 1 если зачисление прошло, 0 если условие не выполнено
+     */
+    @Modifying
+    @Query("""
+            update Card c set c.balance = c.balance + :amount, c.version = c.version + 1
+            where c.id = :cardId
+              and c.ownerId = :ownerId
+              and c.status = com.example.bankcards.entity.enums.CardStatus.ACTIVE
+            """)
+    int creditActiveCard(@Param("cardId") UUID cardId,
+                         @Param("ownerId") UUID ownerId,
+                         @Param("amount") BigDecimal amount);
 }
@@ -0,0 +1,66 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardTransaction;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Репозиторий для работы с журналом переводов между картами
+ */
+
+@Repository
+public interface CardTransactionRepository extends JpaRepository<CardTransaction, Long> {
+
+    /**
+     * Ищет перевод по ключу идемпотентности.
+     * <p>
+     * Ключ хранится с привязкой к пользователю в виде {@code userId:ключ из заголовка}, поэтому одинаковые ключи
+     * разных пользователей не пересекаются. Искать нужно по ключу в том же виде, а не по значению заголовка
+     * </p>
+     *
+     * @param idempotencyKey ключ идемпотентности с идентификатором пользователя
+     * @return перевод, выполненный с этим ключом
+     */
+    Optional<CardTransaction> findByIdempotencyKey(String idempotencyKey);
+
+    /**
+     * Возвращает переводы по карте (входящие и исходящие), созданные строго раньше позиции курсора,
+     * в порядке убывания (created_at, id).
+     * <p>
+     * Каждая ветка UNION ALL читает не более {@code limit} строк по своему составному индексу,
+     * поэтому стоимость запроса не зависит от глубины страницы
+     * </p>
+     *
+     * @param cardId    идентификатор карты
+     * @param createdAt время создания последней записи предыдущей страницы
+     * @param id        идентификатор последней записи предыдущей страницы
+     * @param limit     максимальное количество записей
+     * @return переводы по карте
+     */
+    @Query(value = """
+            select t.* from (
+                (select * from card_transaction
+                 where from_card_id = :cardId and (created_at, id) < (:createdAt, :id)
+                 order by created_at desc, id desc
+                 limit :limit)
+                union all
+                (select * from card_transaction
+                 where to_card_id = :cardId and (created_at, id) < (:createdAt, :id)
+                 order by created_at desc, id desc
+                 limit :limit)
+            ) t
+            order by t.created_at desc, t.id desc
+            limit :limit
+            """, nativeQuery = true)
+    List<CardTransaction> findPageByCardId(@Param("cardId") UUID cardId,
+                                           @Param("createdAt") Instant createdAt,
+                                           @Param("id") long id,
+                                           @Param("limit") int limit);
+}
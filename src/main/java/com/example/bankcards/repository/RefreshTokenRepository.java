@@ -0,0 +1,61 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Репозиторий для работы с токенами обновления доступа
+ */
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, UUID> {
+
+    /**
+     * Возвращает токен по его хэшу, поиск идёт по уникальному индексу
+     *
+     * @param tokenHash SHA-256 токена
+     * @return токен
+     */
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+    /**
+     * Помечает токен использованным, если он ещё не использован и не отозван. Условие проверяется в самом UPDATE,
+     * поэтому из двух одновременных обменов одного токена успешен только один
+     *
+     * @param id     идентификатор токена
+     * @param usedAt время обмена
+     * @return 1, если токен помечен, 0 если его уже использовали или отозвали
+     */
+    @Modifying
+    @Query("update RefreshToken t set t.usedAt = :usedAt where t.id = :id and t.usedAt is null and t.revoked = false")
+    int markUsed(@Param("id") UUID id, @Param("usedAt") Instant usedAt);
+
+    /**
+     * Отзывает все токены цепочки
+     *
+     * @param familyId идентификатор цепочки
+     * @return количество отозванных токенов
+     */
+    @Modifying
+    @Query("update RefreshToken t set t.revoked = true where t.familyId = :familyId and t.revoked = false")
+    int revokeFamily(@Param("familyId") UUID familyId);
+
+    /**
+     * Удаляет истёкшие токены пользователя
+     *
+     * @param userId идентификатор пользователя
+     * @param now    текущее время
+     * @return количество удалённых токенов
+     */
+    @Modifying
+    @Query("delete from RefreshToken t where t.userId = :userId and t.expiresAt < :now")
+    int deleteExpiredByUserId(@Param("userId") UUID userId, @Param("now") Instant now);
+}
@@ -1,7 +1,14 @@
 package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.projection.UserInfoRow;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Optional;
 import java.util.UUID;
@@ -13,10 +20,47 @@ import java.util.UUID;
 public interface UserRepository extends JpaRepository<User, UUID> {
 
     /**
-     * Возвращает пользователя по логину
+     * Возвращает пользователя по логину вместе с ролями: они нужны для выпуска JWT после входа
      *
      * @param username логин пользователя
      * @return пользователь
      */
+    @EntityGraph(attributePaths = "roles")
     Optional<User> findByUsername(String username);
+
+    /**
+     * Проверяет, занят ли логин, без загрузки пользователя
+     *
+     * @param username логин пользователя
+     * @return есть ли пользователь с таким логином
+     */
+    boolean existsByUsername(String username);
+
+    /**
+     * Страница пользователей с ролями одним SQL-запросом (плюс запрос количества для страницы).
+     * Роли собираются агрегатом {@code listagg}, который на PostgreSQL выполняется как {@code string_agg};
+     * сущности и хэши паролей не загружаются. Сортировка из {@code pageable} применяется к полям {@code User}
+     *
+     * @param pageable страница и сортировка
+     * @return страница строк списка пользователей
+     */
+    @Query(value = """
+            select new com.example.bankcards.repository.projection.UserInfoRow(
+                u.username, u.firstName, u.lastName, listagg(cast(r.name as String), ','))
+            from User u
+            left join u.roles r
+            group by u.id, u.username, u.firstName, u.lastName
+            """, countQuery = "select count(u) from User u")
+    Page<UserInfoRow> findUserInfoPage(Pageable pageable);
+
+    /**
+     * Заменяет хэш пароля пользователя
+     *
+     * @param id       идентификатор пользователя
+     * @param password новый хэш пароля
+     * @return количество обновлённых строк
+     */
+    @Modifying
+    @Query("update User u set u.password = :password where u.id = :id")
+    int updatePassword(@Param("id") UUID id, @Param("password") String password);
 }
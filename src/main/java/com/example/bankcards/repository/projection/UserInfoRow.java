@@ -0,0 +1,12 @@
+package com.example.bankcards.repository.projection;
+
+/**
+ * Строка списка пользователей из запроса с агрегированными ролями, без хэша пароля
+ *
+ * @param username  логин пользователя
+ * @param firstName имя
+ * @param lastName  фамилия
+ * @param roles     имена ролей через запятую, {@code null} если ролей нет
+ */
+public record UserInfoRow(String username, String firstName, String lastName, String roles) {
+}
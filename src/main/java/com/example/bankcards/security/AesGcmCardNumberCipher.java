@@ -0,0 +1,108 @@
+package com.example.bankcards.security;
+
+import org.springframework.security.crypto.encrypt.TextEncryptor;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Шифрование номеров карт алгоритмом AES-256-GCM.
+ * <p>
+ * Ключи берутся из {@link CardKeyRing}, который держит их в памяти, а не выводит при каждой операции.
+ * {@link Cipher} не потокобезопасен и дорого создаётся, поэтому у каждого потока свой экземпляр,
+ * который только переинициализируется новым IV. Шифротекст хранится компактно: префикс {@code g<версия ключа>:}
+ * и Base64 без выравнивания от IV (12 байт) и зашифрованного номера с тегом аутентификации (16 байт).
+ * </p>
+ * <p>
+ * Номера, зашифрованные прежним {@link TextEncryptor} (hex без префикса), расшифровываются им же,
+ * пока фоновая перешифровка не переведёт их на активный ключ
+ * </p>
+ */
+public class AesGcmCardNumberCipher implements CardNumberCipher {
+
+    private static final char PREFIX_MARK = 'g';
+    private static final char VERSION_SEPARATOR = ':';
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+
+    private static final Base64.Encoder BASE64_ENCODER = Base64.getEncoder().withoutPadding();
+    private static final Base64.Decoder BASE64_DECODER = Base64.getDecoder();
+
+    private final CardKeyRing keyRing;
+    private final TextEncryptor legacyEncryptor;
+    private final SecureRandom random = new SecureRandom();
+    private final ThreadLocal<Cipher> cipher = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance(TRANSFORMATION);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES/GCM недоступен", e);
+        }
+    });
+
+    /**
+     * @param keyRing         версионированные ключи шифрования
+     * @param legacyEncryptor шифрование, которым сохранены номера до перехода на AES-GCM
+     */
+    public AesGcmCardNumberCipher(CardKeyRing keyRing, TextEncryptor legacyEncryptor) {
+        this.keyRing = keyRing;
+        this.legacyEncryptor = legacyEncryptor;
+    }
+
+    @Override
+    public String encrypt(String number) {
+        int version = keyRing.activeVersion();
+        byte[] iv = new byte[IV_BYTES];
+        random.nextBytes(iv);
+        try {
+            Cipher instance = cipher.get();
+            instance.init(Cipher.ENCRYPT_MODE, keyRing.key(version), new GCMParameterSpec(TAG_BITS, iv));
+            byte[] plain = number.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer out = ByteBuffer.allocate(IV_BYTES + instance.getOutputSize(plain.length));
+            out.put(iv);
+            instance.doFinal(ByteBuffer.wrap(plain), out);
+            return prefix(version) + BASE64_ENCODER.encodeToString(out.array());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Не удалось зашифровать номер карты", e);
+        }
+    }
+
+    @Override
+    public String decrypt(String ciphertext) {
+        int separator = ciphertext.indexOf(VERSION_SEPARATOR);
+        if (ciphertext.isEmpty() || ciphertext.charAt(0) != PREFIX_MARK || separator < 0) {
+            return legacyEncryptor.decrypt(ciphertext);
+        }
+        SecretKey key = keyRing.key(Integer.parseInt(ciphertext, 1, separator, 10));
+        byte[] data = BASE64_DECODER.decode(ciphertext.substring(separator + 1));
+        try {
+            Cipher instance = cipher.get();
+            instance.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, data, 0, IV_BYTES));
+            return new String(instance.doFinal(data, IV_BYTES, data.length - IV_BYTES), StandardCharsets.UTF_8);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Не удалось расшифровать номер карты", e);
+        }
+    }
+
+    @Override
+    public String currentPrefix() {
+        return prefix(keyRing.activeVersion());
+    }
+
+    /**
+     * Префикс шифротекста, зашифрованного ключом указанной версии
+     *
+     * @param version версия ключа
+     * @return префикс вида {@code g<версия>:}
+     */
+    public static String prefix(int version) {
+        return PREFIX_MARK + Integer.toString(version) + VERSION_SEPARATOR;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.enums.RoleName;
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Аутентифицированный пользователь из проверенного JWT.
+ * <p>
+ * Строится один раз при разборе токена и хранится вместе с ним в кэше проверенных токенов, поэтому
+ * идентификатор и роли не разбираются из строк на каждом запросе, а для их получения не нужны таблицы
+ * {@code users} и {@code user_roles}. В контроллер передаётся через {@link AuthenticatedUserArgumentResolver}.
+ * {@link #getName()} возвращает идентификатор, как и прежний строковый principal
+ * </p>
+ *
+ * @param id    идентификатор пользователя из subject токена
+ * @param roles роли пользователя
+ */
+
+public record AuthenticatedUser(UUID id, Set<RoleName> roles) implements AuthenticatedPrincipal {
+
+    private static final Map<RoleName, GrantedAuthority> AUTHORITIES = new EnumMap<>(RoleName.class);
+
+    static {
+        Arrays.stream(RoleName.values())
+                .forEach(role -> AUTHORITIES.put(role, new SimpleGrantedAuthority("ROLE_" + role.name())));
+    }
+
+    public AuthenticatedUser {
+        roles = roles.isEmpty()
+                ? Collections.emptySet()
+                : Collections.unmodifiableSet(EnumSet.copyOf(roles));
+    }
+
+    /**
+     * @param role роль
+     * @return есть ли у пользователя роль
+     */
+    public boolean hasRole(RoleName role) {
+        return roles.contains(role);
+    }
+
+    /**
+     * @return права Spring Security с префиксом {@code ROLE_}
+     */
+    public List<GrantedAuthority> authorities() {
+        return roles.stream()
+                .map(AUTHORITIES::get)
+                .toList();
+    }
+
+    @Override
+    public String getName() {
+        return id.toString();
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.UnauthorizedException;
+import com.example.bankcards.util.ExceptionMessages;
+import org.springframework.core.MethodParameter;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * Подставляет в параметр контроллера типа {@link AuthenticatedUser} пользователя, которого
+ * {@link JwtAuthenticationFilter} положил в аутентификацию запроса
+ */
+
+public class AuthenticatedUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return AuthenticatedUser.class.equals(parameter.getParameterType());
+    }
+
+    /**
+     * @throws UnauthorizedException если запрос не аутентифицирован по JWT
+     */
+    @Override
+    public AuthenticatedUser resolveArgument(MethodParameter parameter,
+                                             ModelAndViewContainer mavContainer,
+                                             NativeWebRequest webRequest,
+                                             WebDataBinderFactory binderFactory) {
+        if (webRequest.getUserPrincipal() instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return user;
+        }
+        throw new UnauthorizedException(ExceptionMessages.AUTHENTICATION_REQUIRED.getDescription());
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.bankcards.security;
+
+import javax.crypto.SecretKey;
+
+/**
+ * Версионированные ключи шифрования номеров карт.
+ * <p>
+ * Номер шифруется ключом активной версии, а версия записывается в префикс шифротекста, поэтому после смены
+ * ключа прежние номера остаются читаемыми, пока их не перешифрует фоновая задача
+ * </p>
+ */
+public interface CardKeyRing {
+
+    /**
+     * Версия ключа, которым шифруются новые номера
+     *
+     * @return активная версия ключа
+     */
+    int activeVersion();
+
+    /**
+     * Ключ указанной версии
+     *
+     * @param version версия ключа из префикса шифротекста
+     * @return ключ AES
+     * @throws IllegalStateException если ключа такой версии нет
+     */
+    SecretKey key(int version);
+
+    /**
+     * Создаёт ключ следующей версии и делает его активным
+     *
+     * @return версия нового ключа
+     */
+    int rotate();
+}
@@ -0,0 +1,52 @@
+package com.example.bankcards.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.HexFormat;
+
+/**
+ * Детерминированный слепой индекс номера карты.
+ * <p>
+ * Номер шифруется со случайным IV, поэтому по шифротексту нельзя ни найти карту, ни проверить уникальность.
+ * Вместо этого рядом хранится HMAC-SHA256 номера на отдельном ключе: одинаковые номера дают одинаковый индекс,
+ * а без ключа номер по индексу не подобрать. Экземпляр {@link Mac} не потокобезопасен, поэтому у каждого потока
+ * свой экземпляр с уже заданным ключом
+ * </p>
+ */
+
+@Component
+public class CardNumberBlindIndex {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final ThreadLocal<Mac> mac;
+
+    public CardNumberBlindIndex(@Value("${data.encryption.blind-index-secret}") String secret) {
+        SecretKeySpec key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac instance = Mac.getInstance(ALGORITHM);
+                instance.init(key);
+                return instance;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HMAC-SHA256 недоступен", e);
+            }
+        });
+    }
+
+    /**
+     * Считает слепой индекс номера карты, пробелы в номере не учитываются
+     *
+     * @param number открытый номер карты
+     * @return HMAC номера в шестнадцатеричном виде, 64 символа
+     */
+    public String of(String number) {
+        String normalized = number.replace(" ", "");
+        return HexFormat.of().formatHex(mac.get().doFinal(normalized.getBytes(StandardCharsets.UTF_8)));
+    }
+}
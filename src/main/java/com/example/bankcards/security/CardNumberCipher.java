@@ -0,0 +1,31 @@
+package com.example.bankcards.security;
+
+/**
+ * Шифрование номеров карт для хранения в базе данных
+ */
+public interface CardNumberCipher {
+
+    /**
+     * Шифрует номер карты
+     *
+     * @param number открытый номер карты
+     * @return шифротекст в текущем формате хранения
+     */
+    String encrypt(String number);
+
+    /**
+     * Расшифровывает номер карты, сохранённый в текущем или одном из прежних форматов
+     *
+     * @param ciphertext шифротекст из базы данных
+     * @return открытый номер карты
+     */
+    String decrypt(String ciphertext);
+
+    /**
+     * Префикс шифротекстов в текущем формате, включая версию активного ключа.
+     * Карты, номер которых сохранён без этого префикса, перешифровываются фоновой задачей
+     *
+     * @return префикс текущего формата
+     */
+    String currentPrefix();
+}
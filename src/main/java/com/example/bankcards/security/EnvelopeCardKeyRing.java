@@ -0,0 +1,331 @@
+package com.example.bankcards.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Конвертное шифрование номеров карт.
+ * <p>
+ * Номера шифруются ключами данных, а сами ключи хранятся в таблице {@code card_data_key} зашифрованными
+ * мастер-ключом, который выводится из {@code data.encryption.secret}. Поэтому смена секрета приложения
+ * перешифровывает только несколько строк с ключами: новый секрет задаётся в {@code data.encryption.secret},
+ * прежний в {@code data.encryption.previous-secret}, и при загрузке ключи, не расшифровываемые новым мастер-ключом,
+ * перешифровываются им. Смена ключа данных ({@link #rotate()}) добавляет новую версию, номера карт переводятся
+ * на неё фоновой задачей.
+ * </p>
+ * <p>
+ * Ключ версии {@value #INITIAL_VERSION} при первом запуске создаётся из того же секрета и соли, которыми
+ * зашифрованы номера в формате {@code g1:}, поэтому уже сохранённые номера перешифровывать не нужно.
+ * Расшифрованные ключи держатся в памяти и перечитываются раз в {@code data.encryption.key-refresh-interval},
+ * а также сразу, если встретился номер, зашифрованный неизвестной версией ключа (например, созданной
+ * на другом экземпляре приложения)
+ * </p>
+ */
+
+@Slf4j
+@Component
+public class EnvelopeCardKeyRing implements CardKeyRing {
+
+    /**
+     * Версия ключа, которым зашифрованы номера до появления таблицы ключей
+     */
+    public static final int INITIAL_VERSION = 1;
+
+    private static final String SELECT_KEYS_SQL = "select version, wrapped_key from card_data_key";
+
+    private static final String INSERT_KEY_SQL = """
+            insert into card_data_key (version, wrapped_key, created_at) values (?, ?, now())
+            on conflict (version) do nothing
+            """;
+
+    private static final String REWRAP_KEY_SQL = """
+            update card_data_key set wrapped_key = ?
+            where version = ? and wrapped_key = ?
+            """;
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final String KEY_DERIVATION = "PBKDF2WithHmacSHA256";
+    private static final int KEY_DERIVATION_ITERATIONS = 65_536;
+    private static final int KEY_BITS = 256;
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+
+    /**
+     * Добавляется к соли при выводе мастер-ключа, чтобы он не совпадал с ключом версии {@value #INITIAL_VERSION}
+     */
+    private static final byte[] MASTER_KEY_CONTEXT = "card-data-key".getBytes(StandardCharsets.UTF_8);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SecretKey masterKey;
+    private final SecretKey previousMasterKey;
+    private final SecretKey initialKey;
+    private final long refreshIntervalNanos;
+    private final SecureRandom random = new SecureRandom();
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile Keys keys;
+
+    public EnvelopeCardKeyRing(JdbcTemplate jdbcTemplate,
+                               @Value("${data.encryption.secret}") String secret,
+                               @Value("${data.encryption.salt}") String salt,
+                               @Value("${data.encryption.previous-secret:}") String previousSecret,
+                               @Value("${data.encryption.key-refresh-interval:1m}") Duration refreshInterval) {
+        byte[] saltBytes = HexFormat.of().parseHex(salt);
+        this.jdbcTemplate = jdbcTemplate;
+        this.masterKey = deriveKey(secret, masterKeySalt(saltBytes));
+        this.previousMasterKey = previousSecret.isBlank() ? null : deriveKey(previousSecret, masterKeySalt(saltBytes));
+        this.initialKey = deriveKey(secret, saltBytes);
+        this.refreshIntervalNanos = refreshInterval.toNanos();
+    }
+
+    @Override
+    public int activeVersion() {
+        return current().activeVersion();
+    }
+
+    @Override
+    public SecretKey key(int version) {
+        Keys current = current();
+        SecretKey key = current.byVersion().get(version);
+        if (key == null) {
+            key = reload(current).byVersion().get(version);
+        }
+        if (key == null) {
+            throw new IllegalStateException("Ключ шифрования номеров карт версии " + version + " не найден");
+        }
+        return key;
+    }
+
+    @Override
+    public int rotate() {
+        lock.lock();
+        try {
+            int version = reload(keys).activeVersion() + 1;
+            SecretKey key = generateKey();
+            while (jdbcTemplate.update(INSERT_KEY_SQL, version, wrap(key, version, masterKey)) == 0) {
+                version++;
+            }
+            reload(keys);
+            log.info("Создан ключ шифрования номеров карт версии {}", version);
+            return version;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Выводит ключ AES-256 из секрета через PBKDF2
+     *
+     * @param secret секрет
+     * @param salt   соль
+     * @return ключ AES
+     */
+    public static SecretKey deriveKey(String secret, byte[] salt) {
+        try {
+            PBEKeySpec spec = new PBEKeySpec(secret.toCharArray(), salt, KEY_DERIVATION_ITERATIONS, KEY_BITS);
+            byte[] encoded = SecretKeyFactory.getInstance(KEY_DERIVATION).generateSecret(spec).getEncoded();
+            return new SecretKeySpec(encoded, "AES");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Не удалось получить ключ шифрования номеров карт", e);
+        }
+    }
+
+    /**
+     * Загруженные ключи. Если они устарели, перечитывает их одним потоком, остальные потоки тем временем
+     * продолжают работать с прежними ключами
+     *
+     * @return актуальные ключи
+     */
+
+    private Keys current() {
+        Keys current = keys;
+        if (current == null) {
+            return reload(null);
+        }
+        if (System.nanoTime() - current.loadedAt() > refreshIntervalNanos && lock.tryLock()) {
+            try {
+                if (keys == current) {
+                    keys = load();
+                }
+            } catch (DataAccessException e) {
+                log.warn("Не удалось перечитать ключи шифрования номеров карт: {}", e.getMessage());
+                keys = new Keys(current.byVersion(), current.activeVersion(), System.nanoTime());
+            } finally {
+                lock.unlock();
+            }
+            return keys;
+        }
+        return current;
+    }
+
+    /**
+     * Перечитывает ключи, если их ещё не перечитал другой поток
+     *
+     * @param seen ключи, которые видел вызывающий поток
+     * @return актуальные ключи
+     */
+
+    private Keys reload(Keys seen) {
+        lock.lock();
+        try {
+            if (keys == seen) {
+                keys = load();
+            }
+            return keys;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Читает и расшифровывает ключи из базы, при первом запуске сохраняет ключ версии {@value #INITIAL_VERSION}
+     *
+     * @return ключи
+     * @throws IllegalStateException если ключей нет и после сохранения начального ключа
+     */
+
+    private Keys load() {
+        List<StoredKey> stored = selectKeys();
+        if (stored.isEmpty()) {
+            jdbcTemplate.update(INSERT_KEY_SQL, INITIAL_VERSION, wrap(initialKey, INITIAL_VERSION, masterKey));
+            stored = selectKeys();
+        }
+        if (stored.isEmpty()) {
+            throw new IllegalStateException("В таблице card_data_key нет ключей шифрования номеров карт");
+        }
+        Map<Integer, SecretKey> byVersion = new HashMap<>();
+        for (StoredKey key : stored) {
+            byVersion.put(key.version(), unwrap(key));
+        }
+        return new Keys(Map.copyOf(byVersion), Collections.max(byVersion.keySet()), System.nanoTime());
+    }
+
+    private List<StoredKey> selectKeys() {
+        return jdbcTemplate.query(SELECT_KEYS_SQL,
+                (rs, rowNum) -> new StoredKey(rs.getInt("version"), rs.getString("wrapped_key")));
+    }
+
+    /**
+     * Расшифровывает ключ мастер-ключом, а ключ, зашифрованный прежним мастер-ключом, перешифровывает текущим
+     *
+     * @param stored ключ из базы
+     * @return ключ AES
+     */
+
+    private SecretKey unwrap(StoredKey stored) {
+        try {
+            return unwrap(stored, masterKey);
+        } catch (AEADBadTagException e) {
+            if (previousMasterKey == null) {
+                throw new IllegalStateException("Ключ шифрования номеров карт версии " + stored.version()
+                        + " не расшифровывается мастер-ключом", e);
+            }
+        }
+        try {
+            SecretKey key = unwrap(stored, previousMasterKey);
+            jdbcTemplate.update(REWRAP_KEY_SQL, wrap(key, stored.version(), masterKey), stored.version(),
+                    stored.wrappedKey());
+            log.info("Ключ шифрования номеров карт версии {} перешифрован новым мастер-ключом", stored.version());
+            return key;
+        } catch (AEADBadTagException e) {
+            throw new IllegalStateException("Ключ шифрования номеров карт версии " + stored.version()
+                    + " не расшифровывается ни текущим, ни прежним мастер-ключом", e);
+        }
+    }
+
+    /**
+     * Шифрует ключ мастер-ключом, версия ключа входит в аутентифицируемые данные,
+     * поэтому строки таблицы нельзя поменять местами
+     */
+
+    private String wrap(SecretKey key, int version, SecretKey wrappingKey) {
+        byte[] iv = new byte[IV_BYTES];
+        random.nextBytes(iv);
+        try {
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.ENCRYPT_MODE, wrappingKey, new GCMParameterSpec(TAG_BITS, iv));
+            cipher.updateAAD(versionBytes(version));
+            byte[] wrapped = cipher.doFinal(key.getEncoded());
+            return Base64.getEncoder().encodeToString(ByteBuffer.allocate(IV_BYTES + wrapped.length)
+                    .put(iv)
+                    .put(wrapped)
+                    .array());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Не удалось зашифровать ключ шифрования номеров карт", e);
+        }
+    }
+
+    private SecretKey unwrap(StoredKey stored, SecretKey wrappingKey) throws AEADBadTagException {
+        byte[] data = Base64.getDecoder().decode(stored.wrappedKey());
+        try {
+            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+            cipher.init(Cipher.DECRYPT_MODE, wrappingKey, new GCMParameterSpec(TAG_BITS, data, 0, IV_BYTES));
+            cipher.updateAAD(versionBytes(stored.version()));
+            return new SecretKeySpec(cipher.doFinal(data, IV_BYTES, data.length - IV_BYTES), "AES");
+        } catch (AEADBadTagException e) {
+            throw e;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Не удалось расшифровать ключ шифрования номеров карт", e);
+        }
+    }
+
+    private SecretKey generateKey() {
+        try {
+            KeyGenerator generator = KeyGenerator.getInstance("AES");
+            generator.init(KEY_BITS, random);
+            return generator.generateKey();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Не удалось создать ключ шифрования номеров карт", e);
+        }
+    }
+
+    private static byte[] masterKeySalt(byte[] salt) {
+        return ByteBuffer.allocate(salt.length + MASTER_KEY_CONTEXT.length)
+                .put(salt)
+                .put(MASTER_KEY_CONTEXT)
+                .array();
+    }
+
+    private static byte[] versionBytes(int version) {
+        return ByteBuffer.allocate(Integer.BYTES).putInt(version).array();
+    }
+
+    /**
+     * Ключ в том виде, в котором он хранится в базе
+     */
+    private record StoredKey(int version, String wrappedKey) {
+    }
+
+    /**
+     * Расшифрованные ключи по версиям
+     *
+     * @param byVersion     ключи по версиям
+     * @param activeVersion версия ключа для шифрования новых номеров
+     * @param loadedAt      момент загрузки по {@link System#nanoTime()}
+     */
+    private record Keys(Map<Integer, SecretKey> byVersion, int activeVersion, long loadedAt) {
+    }
+}
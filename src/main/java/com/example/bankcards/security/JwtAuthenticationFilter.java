@@ -6,13 +6,11 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.List;
 
 /**
  * Фильтр для проверки JWT в запросах и установки аутентификации в SecurityContext
@@ -28,7 +26,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     /**
      * Проверяет наличие и валидность JWT в заголовке Authorization
-     * Если токен валиден — ставит Authentication в SecurityContext
+     * Если токен валиден — ставит Authentication в SecurityContext. Токен разбирается и проверяется один раз,
+     * principal — уже разобранный {@link AuthenticatedUser}, и дальше запросу не нужны ни строки, ни БД
      */
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -43,17 +42,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             String token = header.substring(TOKEN_PREFIX.length());
 
             try {
-                jwtTokenProvider.validateToken(token);
-                String username = jwtTokenProvider.getUserIdFromToken(token);
-
-                List<SimpleGrantedAuthority> authorities = jwtTokenProvider.getRoles(token).stream()
-                        .map(role -> new SimpleGrantedAuthority("ROLE_" + role))
-                        .toList();
+                AuthenticatedUser user = jwtTokenProvider.parseToken(token);
 
                 UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(
-                        username,
+                        user,
                         null,
-                        authorities
+                        user.authorities()
                 );
                 SecurityContextHolder.getContext().setAuthentication(auth);
 
@@ -0,0 +1,221 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.dto.response.JwkDto;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Ключи подписи и проверки JWT.
+ * <p>
+ * В режиме {@code HS256} токены подписываются и проверяются общим секретом {@code jwt.secret}, как и раньше.
+ * В режиме {@code ES256} токен подписывается закрытым ключом P-256 и получает заголовок {@code kid}, а проверяется
+ * открытым ключом с этим {@code kid}. Закрытый ключ ({@code jwt.signing.private-key}) нужен только узлу,
+ * выпускающему токены; остальным узлам и прокси достаточно открытых ключей ({@code jwt.signing.public-keys})
+ * или их набора JWKS. Несколько открытых ключей позволяют сменить ключ подписи без отзыва выданных токенов.
+ * Если ключи для {@code ES256} не заданы, пара создаётся в памяти, и токены проверяются только этим экземпляром
+ * </p>
+ */
+
+@Slf4j
+@Component
+public class JwtSigningKeys {
+
+    private static final String EC_ALGORITHM = "EC";
+    private static final String EC_CURVE = "secp256r1";
+    private static final String JWK_CURVE = "P-256";
+    private static final int EC_COORDINATE_BYTES = 32;
+
+    private final SignatureAlgorithm algorithm;
+    private final Key signingKey;
+    private final String kid;
+    private final Map<String, Key> verificationKeys;
+
+    /**
+     * @param algorithm  алгоритм подписи: HS256 или ES256
+     * @param secret     общий секрет для HS256
+     * @param kid        идентификатор ключа подписи для ES256
+     * @param privateKey закрытый ключ для ES256 в формате PKCS#8, Base64; пустой на узлах, которые только проверяют
+     * @param publicKeys открытые ключи для ES256 в виде {@code kid=X.509 в Base64} через запятую
+     */
+    public JwtSigningKeys(@Value("${jwt.signing.algorithm:HS256}") String algorithm,
+                          @Value("${jwt.secret}") String secret,
+                          @Value("${jwt.signing.kid:}") String kid,
+                          @Value("${jwt.signing.private-key:}") String privateKey,
+                          @Value("${jwt.signing.public-keys:}") String publicKeys) {
+        this.algorithm = SignatureAlgorithm.forName(algorithm);
+        if (this.algorithm == SignatureAlgorithm.HS256) {
+            this.signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+            this.kid = null;
+            this.verificationKeys = Map.of();
+        } else if (this.algorithm == SignatureAlgorithm.ES256) {
+            if (privateKey.isBlank() && publicKeys.isBlank()) {
+                KeyPair pair = generateEcKeyPair();
+                this.kid = kid.isBlank() ? "ephemeral-" + UUID.randomUUID() : kid;
+                this.signingKey = pair.getPrivate();
+                this.verificationKeys = Map.of(this.kid, pair.getPublic());
+                log.warn("Ключи ES256 для JWT не заданы, создана временная пара с kid = {}: "
+                        + "токены этого экземпляра не проверятся на других экземплярах", this.kid);
+            } else {
+                this.kid = kid.isBlank() ? null : kid;
+                this.signingKey = privateKey.isBlank() ? null : decodePrivateKey(privateKey);
+                this.verificationKeys = decodePublicKeys(publicKeys);
+                if (this.signingKey != null && (this.kid == null || !verificationKeys.containsKey(this.kid))) {
+                    throw new IllegalStateException("Для ключа подписи JWT с kid = " + kid
+                            + " не задан открытый ключ в jwt.signing.public-keys");
+                }
+            }
+        } else {
+            throw new IllegalStateException("Алгоритм подписи JWT " + algorithm + " не поддерживается");
+        }
+    }
+
+    /**
+     * @return алгоритм подписи выпускаемых токенов
+     */
+    public SignatureAlgorithm algorithm() {
+        return algorithm;
+    }
+
+    /**
+     * @return идентификатор ключа подписи для заголовка {@code kid}, {@code null} для HS256
+     */
+    public String kid() {
+        return kid;
+    }
+
+    /**
+     * Ключ подписи выпускаемых токенов
+     *
+     * @return ключ подписи
+     * @throws IllegalStateException если экземпляр только проверяет токены
+     */
+    public Key signingKey() {
+        if (signingKey == null) {
+            throw new IllegalStateException("Закрытый ключ подписи JWT не задан, экземпляр только проверяет токены");
+        }
+        return signingKey;
+    }
+
+    /**
+     * Ключ проверки подписи токена по его заголовку. Токен, подписанный другим алгоритмом,
+     * не проверяется, поэтому подменить ES256 на HS256 с открытым ключом в роли секрета нельзя
+     *
+     * @param header заголовок токена
+     * @return ключ проверки подписи
+     * @throws SignatureException если алгоритм не совпадает или ключ с таким kid неизвестен
+     */
+    public Key verificationKey(JwsHeader<?> header) {
+        if (!algorithm.getValue().equals(header.getAlgorithm())) {
+            throw new SignatureException("Неожиданный алгоритм подписи JWT");
+        }
+        if (algorithm == SignatureAlgorithm.HS256) {
+            return signingKey;
+        }
+        Key key = header.getKeyId() == null ? null : verificationKeys.get(header.getKeyId());
+        if (key == null) {
+            throw new SignatureException("Неизвестный kid ключа подписи JWT");
+        }
+        return key;
+    }
+
+    /**
+     * Открытые ключи проверки в формате JWK (RFC 7517), для HS256 список пуст
+     *
+     * @return открытые ключи
+     */
+    public List<JwkDto> jwks() {
+        return verificationKeys.entrySet().stream()
+                .map(entry -> toJwk(entry.getKey(), (ECPublicKey) entry.getValue()))
+                .toList();
+    }
+
+    private JwkDto toJwk(String keyId, ECPublicKey key) {
+        return JwkDto.builder()
+                .kty(EC_ALGORITHM)
+                .crv(JWK_CURVE)
+                .kid(keyId)
+                .use("sig")
+                .alg(algorithm.getValue())
+                .x(encodeCoordinate(key.getW().getAffineX()))
+                .y(encodeCoordinate(key.getW().getAffineY()))
+                .build();
+    }
+
+    /**
+     * Координата точки в виде JWK: ровно 32 байта big-endian без знака, Base64url без выравнивания
+     */
+    private static String encodeCoordinate(BigInteger coordinate) {
+        byte[] bytes = coordinate.toByteArray();
+        byte[] fixed = new byte[EC_COORDINATE_BYTES];
+        int length = Math.min(bytes.length, EC_COORDINATE_BYTES);
+        System.arraycopy(bytes, bytes.length - length, fixed, EC_COORDINATE_BYTES - length, length);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(fixed);
+    }
+
+    private static PrivateKey decodePrivateKey(String base64) {
+        try {
+            return KeyFactory.getInstance(EC_ALGORITHM)
+                    .generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(base64.strip())));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Некорректный закрытый ключ подписи JWT", e);
+        }
+    }
+
+    private static Map<String, Key> decodePublicKeys(String publicKeys) {
+        Map<String, Key> keys = new LinkedHashMap<>();
+        Arrays.stream(publicKeys.split(","))
+                .map(String::strip)
+                .filter(entry -> !entry.isEmpty())
+                .forEach(entry -> {
+                    int separator = entry.indexOf('=');
+                    if (separator <= 0) {
+                        throw new IllegalStateException("Открытый ключ JWT должен быть задан как kid=ключ");
+                    }
+                    keys.put(entry.substring(0, separator), decodePublicKey(entry.substring(separator + 1)));
+                });
+        return Map.copyOf(keys);
+    }
+
+    private static Key decodePublicKey(String base64) {
+        try {
+            return KeyFactory.getInstance(EC_ALGORITHM)
+                    .generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(base64)));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Некорректный открытый ключ подписи JWT", e);
+        }
+    }
+
+    private static KeyPair generateEcKeyPair() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance(EC_ALGORITHM);
+            generator.initialize(new ECGenParameterSpec(EC_CURVE));
+            return generator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Не удалось создать ключ подписи JWT", e);
+        }
+    }
+}
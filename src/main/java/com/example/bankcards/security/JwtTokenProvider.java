@@ -1,23 +1,33 @@
 package com.example.bankcards.security;
 
 import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.RoleName;
 import com.example.bankcards.exception.ExpiredTokenException;
 import com.example.bankcards.exception.InvalidTokenException;
 import com.example.bankcards.util.ExceptionMessages;
+import com.github.benmanes.caffeine.cache.Cache;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtBuilder;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Component;
 
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 /**
  * Провайдер JWT токенов
@@ -27,81 +37,121 @@ import java.util.List;
 @Component
 public class JwtTokenProvider {
 
-    private final Key key;
+    private static final Base64.Encoder CACHE_KEY_ENCODER = Base64.getEncoder().withoutPadding();
+
+    private final JwtSigningKeys signingKeys;
+    private final JwtParser parser;
     private final long expiration;
+    private final Cache<String, VerifiedToken> verifiedTokenCache;
+    private final ThreadLocal<MessageDigest> sha256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    });
 
     public JwtTokenProvider(
-            @Value("${jwt.secret}") String secret,
-            @Value("${jwt.expiration}") long expiration
+            JwtSigningKeys signingKeys,
+            @Value("${jwt.expiration}") long expiration,
+            Cache<String, VerifiedToken> verifiedTokenCache
     ) {
-        this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)); // создаём ключ HMAC
+        this.signingKeys = signingKeys;
+        this.parser = Jwts.parserBuilder() // парсер неизменяемый и потокобезопасный
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        return signingKeys.verificationKey(header);
+                    }
+                })
+                .build();
         this.expiration = expiration;
+        this.verifiedTokenCache = verifiedTokenCache;
     }
 
     /**
-     * Генерация JWT токена для пользователя с ролями
+     * Генерация JWT токена для пользователя с ролями, при асимметричной подписи в заголовке указывается kid ключа
      */
 
     public String generateToken(User user) {
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder();
+        if (signingKeys.kid() != null) {
+            builder.setHeaderParam(JwsHeader.KEY_ID, signingKeys.kid());
+        }
+        return builder
                 .setSubject(user.getId().toString())
                 .claim("roles", user.getAuthorities().stream()
                         .map(GrantedAuthority::getAuthority)
                         .toList())
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(key, SignatureAlgorithm.HS256)
+                .signWith(signingKeys.signingKey(), signingKeys.algorithm())
                 .compact();
     }
 
 
     /**
-     * Извлечение userId из токена
+     * Проверка подписи и срока действия токена и извлечение данных пользователя за один разбор.
+     * Уже проверенный токен берётся из кэша по SHA-256 токена, пока не наступил его {@code exp}
      *
      * @param token токен
-     * @return идентфикатор пользователя
+     * @return пользователь с идентификатором и ролями
+     * @throws ExpiredTokenException если срок действия токена истёк
+     * @throws InvalidTokenException если токен повреждён, подписан другим ключом или содержит неизвестную роль
      */
-    public String getUserIdFromToken(String token) {
-        return parse(token).getSubject();
-    }
 
-    /**
-     * Получение ролей из JWT
-     */
-
-    @SuppressWarnings("unchecked")
-    public List<String> getRoles(String token) {
-        return parse(token).get("roles", List.class);
+    public AuthenticatedUser parseToken(String token) {
+        String cacheKey = cacheKey(token);
+        VerifiedToken cached = verifiedTokenCache.getIfPresent(cacheKey);
+        if (cached != null) {
+            if (cached.expiresAt() > System.currentTimeMillis()) {
+                return cached.user();
+            }
+            verifiedTokenCache.invalidate(cacheKey);
+        }
+        try {
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            AuthenticatedUser user = toAuthenticatedUser(claims);
+            if (claims.getExpiration() != null) {
+                verifiedTokenCache.put(cacheKey, new VerifiedToken(user, claims.getExpiration().getTime()));
+            }
+            return user;
+        } catch (ExpiredJwtException e) {
+            throw new ExpiredTokenException(ExceptionMessages.JWT_TOKEN_EXPIRED.getDescription());
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new InvalidTokenException(ExceptionMessages.JWT_TOKEN_NOT_VALID.getDescription());
+        }
     }
 
     /**
-     * Валидация токена
+     * Пользователь из claims токена
      *
-     * @param token токен
+     * @param claims проверенные claims
+     * @return пользователь
+     * @throws IllegalArgumentException если subject не UUID или роль неизвестна
      */
 
-    public void validateToken(String token) {
-        try {
-            Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
-        } catch (ExpiredJwtException e) {
-            throw new ExpiredTokenException(ExceptionMessages.JWT_TOKEN_EXPIRED.getDescription());
-        } catch (JwtException | IllegalArgumentException e) {
-            throw new InvalidTokenException(ExceptionMessages.JWT_TOKEN_NOT_VALID.getDescription());
+    private static AuthenticatedUser toAuthenticatedUser(Claims claims) {
+        if (claims.getSubject() == null) {
+            throw new IllegalArgumentException("В токене нет subject");
         }
+        List<?> roles = claims.get("roles", List.class);
+        Set<RoleName> roleNames = roles == null
+                ? Set.of()
+                : roles.stream()
+                .map(role -> RoleName.valueOf(String.valueOf(role)))
+                .collect(Collectors.toSet());
+        return new AuthenticatedUser(UUID.fromString(claims.getSubject()), roleNames);
     }
 
     /**
-     * Парсинг токена и извлечение Claims
+     * Ключ кэша проверенных токенов: сам токен в памяти не хранится
      *
      * @param token токен
-     * @return Claims пользователя с логином, ролями, времени создания токена и времени истечения действия токена
+     * @return SHA-256 токена в Base64
      */
 
-    private Claims parse(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    private String cacheKey(String token) {
+        return CACHE_KEY_ENCODER.encodeToString(sha256.get().digest(token.getBytes(StandardCharsets.UTF_8)));
     }
 }
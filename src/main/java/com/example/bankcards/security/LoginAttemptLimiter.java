@@ -0,0 +1,196 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.TooManyRequestsException;
+import com.example.bankcards.util.ExceptionMessages;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Ограничение числа попыток входа по логину и по IP-адресу клиента.
+ * <p>
+ * Каждая попытка входа стоит одного BCrypt, поэтому перебор паролей или проверка украденных пар логин-пароль
+ * занимает процессор. Попытка учитывается до проверки пароля и отклоняется с 429, если за скользящее окно
+ * {@code auth.login-limit.window} по логину или по адресу уже было столько попыток, сколько разрешено.
+ * Отклонённая попытка не учитывается ни в одном из счётчиков: иначе заблокированный логин расходовал бы лимит
+ * адреса, а попытки с заблокированного адреса — лимит логина.
+ * Окно считается приближённо по двум соседним интервалам: счётчик предыдущего интервала берётся с весом
+ * оставшейся в окне доли. Счётчики обновляются через CAS без блокировок, хранятся в кэше Caffeine,
+ * ограниченном по числу ключей, и удаляются, если ключ не использовался два окна подряд.
+ * Успешный вход сбрасывает счётчик логина, счётчик адреса продолжает считать.
+ * Адрес клиента берётся из {@code HttpServletRequest#getRemoteAddr}; за прокси нужно включить
+ * {@code server.forward-headers-strategy}, иначе все запросы придут с адреса прокси
+ * </p>
+ */
+
+@Component
+public class LoginAttemptLimiter {
+
+    private static final String USERNAME_KEY = "username:";
+    private static final String IP_KEY = "ip:";
+
+    private final long windowMillis;
+    private final int usernameAttempts;
+    private final int ipAttempts;
+    private final LongSupplier clock;
+    private final Cache<String, SlidingWindow> windows;
+    private final Counter usernameRejections;
+    private final Counter ipRejections;
+
+    @Autowired
+    public LoginAttemptLimiter(@Value("${auth.login-limit.window:1m}") Duration window,
+                               @Value("${auth.login-limit.username-attempts:5}") int usernameAttempts,
+                               @Value("${auth.login-limit.ip-attempts:50}") int ipAttempts,
+                               @Value("${auth.login-limit.max-keys:100000}") long maxKeys,
+                               MeterRegistry meterRegistry) {
+        this(window, usernameAttempts, ipAttempts, maxKeys, meterRegistry, System::currentTimeMillis);
+    }
+
+    LoginAttemptLimiter(Duration window, int usernameAttempts, int ipAttempts, long maxKeys,
+                        MeterRegistry meterRegistry, LongSupplier clock) {
+        this.windowMillis = window.toMillis();
+        this.usernameAttempts = usernameAttempts;
+        this.ipAttempts = ipAttempts;
+        this.clock = clock;
+        this.windows = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(window.multipliedBy(2))
+                .build();
+        this.usernameRejections = rejections(meterRegistry, "username");
+        this.ipRejections = rejections(meterRegistry, "ip");
+    }
+
+    /**
+     * Учитывает попытку входа
+     *
+     * @param username логин из запроса
+     * @param clientIp адрес клиента
+     * @throws TooManyRequestsException если лимит попыток по логину или по адресу исчерпан
+     */
+    public void acquire(String username, String clientIp) {
+        long now = clock.getAsLong();
+        SlidingWindow ipWindow = window(IP_KEY + clientIp);
+        SlidingWindow usernameWindow = window(USERNAME_KEY + normalize(username));
+        if (!ipWindow.allows(now, ipAttempts)) {
+            ipRejections.increment();
+            throw rejected(now);
+        }
+        if (!usernameWindow.tryAcquire(now, usernameAttempts)) {
+            usernameRejections.increment();
+            throw rejected(now);
+        }
+        if (!ipWindow.tryAcquire(now, ipAttempts)) {
+            // адрес исчерпал лимит параллельным запросом после проверки выше
+            usernameWindow.release(now);
+            ipRejections.increment();
+            throw rejected(now);
+        }
+    }
+
+    /**
+     * Сбрасывает счётчик попыток по логину после успешного входа
+     *
+     * @param username логин из запроса
+     */
+    public void reset(String username) {
+        windows.invalidate(USERNAME_KEY + normalize(username));
+    }
+
+    private SlidingWindow window(String key) {
+        return windows.get(key, ignored -> new SlidingWindow(windowMillis));
+    }
+
+    private TooManyRequestsException rejected(long now) {
+        long untilNextInterval = windowMillis - Math.floorMod(now, windowMillis);
+        return new TooManyRequestsException(ExceptionMessages.LOGIN_THROTTLED.getDescription(),
+                Math.max(1, Duration.ofMillis(untilNextInterval).toSeconds()));
+    }
+
+    private static String normalize(String username) {
+        return username.strip().toLowerCase(Locale.ROOT);
+    }
+
+    private static Counter rejections(MeterRegistry meterRegistry, String key) {
+        return Counter.builder("auth.login.throttled")
+                .description("Попытки входа, отклонённые до проверки пароля")
+                .tag("key", key)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Счётчики попыток одного ключа в текущем и предыдущем интервале
+     */
+    private static final class SlidingWindow {
+
+        private final long windowMillis;
+        private final AtomicReference<Counts> counts = new AtomicReference<>(new Counts(0, 0, 0));
+
+        private SlidingWindow(long windowMillis) {
+            this.windowMillis = windowMillis;
+        }
+
+        private boolean allows(long now, int limit) {
+            return !isExhausted(counts.get().rollTo(Math.floorDiv(now, windowMillis)), now, limit);
+        }
+
+        private boolean tryAcquire(long now, int limit) {
+            long interval = Math.floorDiv(now, windowMillis);
+            while (true) {
+                Counts current = counts.get();
+                Counts rolled = current.rollTo(interval);
+                if (isExhausted(rolled, now, limit)) {
+                    return false;
+                }
+                if (counts.compareAndSet(current, rolled.increment())) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Отменяет попытку, учтённую {@link #tryAcquire} в том же интервале
+         */
+        private void release(long now) {
+            long interval = Math.floorDiv(now, windowMillis);
+            while (true) {
+                Counts current = counts.get();
+                if (current.interval() != interval || current.current() == 0
+                        || counts.compareAndSet(current, current.decrement())) {
+                    return;
+                }
+            }
+        }
+
+        private boolean isExhausted(Counts state, long now, int limit) {
+            double previousWeight = 1.0 - (double) Math.floorMod(now, windowMillis) / windowMillis;
+            return state.previous() * previousWeight + state.current() >= limit;
+        }
+    }
+
+    private record Counts(long interval, int current, int previous) {
+
+        private Counts rollTo(long target) {
+            if (target <= interval) {
+                return this;
+            }
+            return new Counts(target, 0, target == interval + 1 ? current : 0);
+        }
+
+        private Counts increment() {
+            return new Counts(interval, current + 1, previous);
+        }
+
+        private Counts decrement() {
+            return new Counts(interval, current - 1, previous);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.TooManyRequestsException;
+import com.example.bankcards.util.ExceptionMessages;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Переносит операции с проверкой или хэшированием пароля из потока запроса в отдельный ограниченный пул.
+ * <p>
+ * Контроллер возвращает {@link CompletableFuture}, поэтому поток Tomcat освобождается сразу, а ответ отправляется
+ * после выполнения задачи. Если пул и его очередь заняты, запрос сразу отклоняется с 429, а не ждёт
+ * </p>
+ */
+
+@Component
+@RequiredArgsConstructor
+public class PasswordHashingDispatcher {
+
+    private final ExecutorService passwordHashingExecutor;
+
+    /**
+     * Запускает задачу в пуле хэширования паролей
+     *
+     * @param task задача, например вход или регистрация
+     * @return результат задачи, исключение задачи завершает его с ошибкой
+     * @throws TooManyRequestsException если пул перегружен
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, passwordHashingExecutor);
+        } catch (RejectedExecutionException e) {
+            throw new TooManyRequestsException(ExceptionMessages.AUTH_OVERLOADED.getDescription());
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.handler.ErrorResponseDto;
+import com.example.bankcards.util.ExceptionMessages;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Фильтр, ограничивающий частоту запросов к API для каждого пользователя отдельно по группам эндпоинтов.
+ * <p>
+ * Стоит в цепочке Spring Security сразу после {@link JwtAuthenticationFilter} и отклоняет запрос с 429
+ * и заголовком Retry-After до контроллеров, сервисов и пула соединений с БД. Для каждой пары
+ * «пользователь, группа» заводится token bucket: ёмкость задаёт допустимый всплеск, пополнение — устойчивую
+ * частоту. Группы: одиночные переводы, пакетные переводы, чтение ({@code GET}) и остальные изменения. Пакет
+ * переводов выполняет до тысячи переводов за запрос, поэтому у него своя, более строгая квота. Ведро обновляется
+ * через CAS без блокировок и хранится в кэше Caffeine, ограниченном по числу ключей; ведро, которое
+ * не использовалось дольше времени полного пополнения, удаляется, так как к этому моменту оно всё равно было бы
+ * полным.
+ * Запросы без аутентификации и вне {@code /api/} не ограничиваются: вход ограничивает {@link LoginAttemptLimiter}
+ * </p>
+ */
+
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final String API_PREFIX = "/api/";
+    private static final String TRANSFER_PATH = "/api/user/cards/transfer";
+    private static final String BATCH_TRANSFER_PATH = "/api/user/cards/transfers:batch";
+
+    private final boolean enabled;
+    private final Map<Route, Quota> quotas;
+    private final LongSupplier nanoClock;
+    private final ObjectMapper objectMapper;
+    private final Cache<String, TokenBucket> buckets;
+    private final Map<Route, Counter> rejections = new EnumMap<>(Route.class);
+
+    @Autowired
+    public RateLimitFilter(@Value("${rate-limit.enabled:true}") boolean enabled,
+                           @Value("${rate-limit.max-buckets:100000}") long maxBuckets,
+                           @Value("${rate-limit.transfer.capacity:10}") int transferCapacity,
+                           @Value("${rate-limit.transfer.refill-per-second:2}") double transferRefill,
+                           @Value("${rate-limit.batch-transfer.capacity:2}") int batchTransferCapacity,
+                           @Value("${rate-limit.batch-transfer.refill-per-second:0.1}") double batchTransferRefill,
+                           @Value("${rate-limit.read.capacity:100}") int readCapacity,
+                           @Value("${rate-limit.read.refill-per-second:20}") double readRefill,
+                           @Value("${rate-limit.write.capacity:30}") int writeCapacity,
+                           @Value("${rate-limit.write.refill-per-second:5}") double writeRefill,
+                           ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry) {
+        this(enabled, maxBuckets, Map.of(
+                Route.TRANSFER, new Quota(transferCapacity, transferRefill),
+                Route.BATCH_TRANSFER, new Quota(batchTransferCapacity, batchTransferRefill),
+                Route.READ, new Quota(readCapacity, readRefill),
+                Route.WRITE, new Quota(writeCapacity, writeRefill)
+        ), objectMapper, meterRegistry, System::nanoTime);
+    }
+
+    RateLimitFilter(boolean enabled, long maxBuckets, Map<Route, Quota> quotas, ObjectMapper objectMapper,
+                    MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.enabled = enabled;
+        this.quotas = new EnumMap<>(quotas);
+        this.nanoClock = nanoClock;
+        this.objectMapper = objectMapper;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxBuckets)
+                .expireAfterAccess(quotas.values().stream()
+                        .map(Quota::timeToFill)
+                        .max(Duration::compareTo)
+                        .orElse(Duration.ofMinutes(1)))
+                .build();
+        Arrays.stream(Route.values()).forEach(route -> rejections.put(route, Counter.builder("api.rate-limit.rejected")
+                .description("Запросы к API, отклонённые лимитом частоты")
+                .tag("route", route.name().toLowerCase(Locale.ROOT))
+                .register(meterRegistry)));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !path(request).startsWith(API_PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            Route route = route(request);
+            Quota quota = quotas.get(route);
+            long waitNanos = buckets.get(authentication.getName() + ":" + route, ignored -> new TokenBucket(quota))
+                    .tryConsume(nanoClock.getAsLong());
+
+            if (waitNanos > 0) {
+                rejections.get(route).increment();
+                reject(response, waitNanos);
+                return;
+            }
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        long second = TimeUnit.SECONDS.toNanos(1);
+        long retryAfterSeconds = Math.max(1, (waitNanos + second - 1) / second);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getWriter(),
+                new ErrorResponseDto(ExceptionMessages.RATE_LIMIT_EXCEEDED.getDescription()));
+    }
+
+    private static Route route(HttpServletRequest request) {
+        if (HttpMethod.POST.matches(request.getMethod())) {
+            String path = path(request);
+            if (path.equals(TRANSFER_PATH)) {
+                return Route.TRANSFER;
+            }
+            if (path.equals(BATCH_TRANSFER_PATH)) {
+                return Route.BATCH_TRANSFER;
+            }
+        }
+        return HttpMethod.GET.matches(request.getMethod()) ? Route.READ : Route.WRITE;
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    /**
+     * Группа эндпоинтов с общим лимитом
+     */
+    enum Route {
+        TRANSFER,
+        BATCH_TRANSFER,
+        READ,
+        WRITE
+    }
+
+    /**
+     * Лимит группы
+     *
+     * @param capacity        допустимый всплеск запросов
+     * @param refillPerSecond устойчивая частота запросов в секунду
+     */
+    record Quota(int capacity, double refillPerSecond) {
+
+        private Duration timeToFill() {
+            return Duration.ofNanos((long) (capacity / refillPerSecond * TimeUnit.SECONDS.toNanos(1)));
+        }
+    }
+
+    /**
+     * Token bucket одного пользователя в одной группе
+     */
+    private static final class TokenBucket {
+
+        private final Quota quota;
+        private final double refillPerNano;
+        private final AtomicReference<State> state = new AtomicReference<>();
+
+        private TokenBucket(Quota quota) {
+            this.quota = quota;
+            this.refillPerNano = quota.refillPerSecond() / TimeUnit.SECONDS.toNanos(1);
+        }
+
+        /**
+         * @return 0, если токен получен, иначе сколько наносекунд ждать следующего токена
+         */
+        private long tryConsume(long now) {
+            while (true) {
+                State current = state.get();
+                double tokens = current == null
+                        ? quota.capacity()
+                        : Math.min(quota.capacity(), current.tokens() + (now - current.updatedAt()) * refillPerNano);
+                if (tokens < 1) {
+                    return (long) Math.ceil((1 - tokens) / refillPerNano);
+                }
+                if (state.compareAndSet(current, new State(tokens - 1, now))) {
+                    return 0;
+                }
+            }
+        }
+    }
+
+    private record State(double tokens, long updatedAt) {
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.bankcards.security;
+
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HexFormat;
+
+/**
+ * Выпуск и хэширование непрозрачных токенов обновления доступа.
+ * <p>
+ * Токен состоит из 256 случайных бит, поэтому для хранения достаточно одного SHA-256 без соли и BCrypt:
+ * подобрать токен по хэшу нельзя, а проверка при обмене сводится к поиску по уникальному индексу
+ * </p>
+ */
+
+@Component
+public class RefreshTokenGenerator {
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * @return новый токен, Base64url без выравнивания
+     */
+    public String generate() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * @param token токен, предъявленный клиентом
+     * @return SHA-256 токена в шестнадцатеричном виде, 64 символа
+     */
+    public String hash(String token) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.enums.RoleName;
+import com.example.bankcards.repository.RoleRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Неизменяемый справочник ролей в памяти.
+ * <p>
+ * Роли — небольшой постоянный набор из миграции {@code dml-insert-roles.sql}, поэтому таблица {@code role}
+ * читается один раз при старте, а создание, изменение и регистрация пользователей берут роли отсюда без
+ * запроса к БД. Роли отсоединены от контекста персистентности и используются только как ссылки в связи
+ * {@code user_roles}, поэтому их можно разделять между потоками
+ * </p>
+ */
+
+@Component
+public class RoleRegistry {
+
+    private final Map<RoleName, Role> roles;
+    private final Map<String, Role> rolesByName;
+
+    /**
+     * @param roleRepository репозиторий ролей
+     * @throws IllegalStateException если какой-то роли из {@link RoleName} нет в БД
+     */
+    public RoleRegistry(RoleRepository roleRepository) {
+        Map<RoleName, Role> loaded = new EnumMap<>(RoleName.class);
+        roleRepository.findAll().forEach(role -> loaded.put(role.getName(), role));
+        Arrays.stream(RoleName.values())
+                .filter(name -> !loaded.containsKey(name))
+                .findFirst()
+                .ifPresent(name -> {
+                    throw new IllegalStateException("Роль " + name + " не найдена в таблице role");
+                });
+        this.roles = Collections.unmodifiableMap(loaded);
+        this.rolesByName = loaded.values().stream()
+                .collect(Collectors.toUnmodifiableMap(role -> role.getName().name(), Function.identity()));
+    }
+
+    /**
+     * @param name имя роли
+     * @return роль
+     */
+    public Role get(RoleName name) {
+        return roles.get(name);
+    }
+
+    /**
+     * Роли по именам; неизвестные имена пропускаются, как и при выборке из БД
+     *
+     * @param names имена ролей
+     * @return роли с этими именами
+     */
+    public Set<Role> findByNames(Set<String> names) {
+        return names.stream()
+                .map(rolesByName::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+    }
+}
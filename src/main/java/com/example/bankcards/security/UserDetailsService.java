@@ -1,15 +1,19 @@
 package com.example.bankcards.security;
 
+import com.example.bankcards.entity.User;
 import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.util.ExceptionMessages;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 @RequiredArgsConstructor
-public class UserDetailsService implements org.springframework.security.core.userdetails.UserDetailsService {
+public class UserDetailsService implements org.springframework.security.core.userdetails.UserDetailsService,
+        UserDetailsPasswordService {
 
     private final UserRepository userRepository;
 
@@ -19,4 +23,21 @@ public class UserDetailsService implements org.springframework.security.core.use
                 .orElseThrow(() -> new UsernameNotFoundException(
                         ExceptionMessages.USER_NOT_FOUND_BY_USERNAME.getDescription().formatted(username)));
     }
+
+    /**
+     * Сохраняет пароль, пересчитанный текущим алгоритмом и стоимостью после успешного входа.
+     * Обновляется только колонка пароля, остальные поля пользователя не перезаписываются
+     *
+     * @param user        пользователь, прошедший проверку пароля
+     * @param newPassword новый хэш пароля
+     * @return пользователь с новым хэшем
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        User entity = (User) user;
+        userRepository.updatePassword(entity.getId(), newPassword);
+        entity.setPassword(newPassword);
+        return entity;
+    }
 }
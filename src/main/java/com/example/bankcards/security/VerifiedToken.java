@@ -0,0 +1,10 @@
+package com.example.bankcards.security;
+
+/**
+ * Уже проверенный JWT в кэше {@link JwtTokenProvider}
+ *
+ * @param user      пользователь из токена
+ * @param expiresAt момент истечения токена в миллисекундах от эпохи
+ */
+public record VerifiedToken(AuthenticatedUser user, long expiresAt) {
+}
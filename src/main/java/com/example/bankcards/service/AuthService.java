@@ -1,13 +1,15 @@
 package com.example.bankcards.service;
 
 import com.example.bankcards.dto.request.AuthRequestDto;
+import com.example.bankcards.dto.request.RefreshTokenRequestDto;
 import com.example.bankcards.dto.request.RegisterRequestDto;
 import com.example.bankcards.dto.response.AuthResponseDto;
+import com.example.bankcards.dto.response.JwksResponseDto;
 
 /**
  * Сервис для управления авторизацией
  * <p>
- * Предоставляет методы для регистрации нового пользователя и возможность входа в аккаунт
+ * Предоставляет методы для регистрации нового пользователя, входа в аккаунт и обновления доступа
  * </p>
  */
 
@@ -17,10 +19,25 @@ public interface AuthService {
      * Метод для авторизации
      *
      * @param request запрос на авторизацию с логином и паролем
-     * @return jwt токен
+     * @return jwt токен и токен обновления
      */
     AuthResponseDto login(AuthRequestDto request);
 
+    /**
+     * Обмен токена обновления на новую пару токенов без проверки пароля
+     *
+     * @param request запрос с токеном обновления
+     * @return новый jwt токен и следующий токен обновления
+     */
+    AuthResponseDto refresh(RefreshTokenRequestDto request);
+
+    /**
+     * Выход: отзывает токен обновления и все токены, полученные из того же входа
+     *
+     * @param request запрос с токеном обновления
+     */
+    void logout(RefreshTokenRequestDto request);
+
     /**
      * Метод для регистрации
      *
@@ -28,4 +45,11 @@ public interface AuthService {
      * @return Строка с ответом получилось ли авторизоваться
      */
     String register(RegisterRequestDto request);
+
+    /**
+     * Открытые ключи проверки JWT для других экземпляров и прокси
+     *
+     * @return набор ключей JWKS, пустой при подписи общим секретом
+     */
+    JwksResponseDto getJwks();
 }
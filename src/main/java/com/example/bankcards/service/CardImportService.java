@@ -0,0 +1,21 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.response.CardImportResponseDto;
+import com.example.bankcards.entity.enums.CardImportFormat;
+
+import java.io.InputStream;
+
+/**
+ * Сервис массового импорта карт из файла
+ */
+public interface CardImportService {
+
+    /**
+     * Потоковый импорт карт: файл читается построчно и не загружается в память целиком.
+     *
+     * @param body   тело запроса с файлом
+     * @param format формат файла
+     * @return итоги импорта
+     */
+    CardImportResponseDto importCards(InputStream body, CardImportFormat format);
+}
@@ -0,0 +1,17 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.response.CardKeyRotationResponseDto;
+
+/**
+ * Сервис управления ключами шифрования номеров карт
+ */
+public interface CardKeyService {
+
+    /**
+     * Создаёт ключ следующей версии, новые номера сразу шифруются им, а сохранённые номера
+     * перешифровываются в фоне
+     *
+     * @return версия нового ключа
+     */
+    CardKeyRotationResponseDto rotateKey();
+}
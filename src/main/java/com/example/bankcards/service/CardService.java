@@ -1,13 +1,19 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.request.CardBatchTransferRequestDto;
+import com.example.bankcards.dto.request.CardBulkCreateRequestDto;
 import com.example.bankcards.dto.request.CardCreateRequestDto;
 import com.example.bankcards.dto.request.CardTransferRequestDto;
+import com.example.bankcards.dto.response.CardBatchTransferResponseDto;
 import com.example.bankcards.dto.response.CardInfoResponseDto;
+import com.example.bankcards.dto.response.CardTransactionPageResponseDto;
 import com.example.bankcards.entity.enums.CardStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -27,6 +33,14 @@ public interface CardService {
      */
     CardInfoResponseDto createCard(CardCreateRequestDto card);
 
+    /**
+     * Выпуск нескольких карт одной транзакцией.
+     *
+     * @param request DTO со списком карт
+     * @return информация о созданных картах в порядке запроса
+     */
+    List<CardInfoResponseDto> createCards(CardBulkCreateRequestDto request);
+
     /**
      * Изменение статуса карты
      *
@@ -50,6 +64,13 @@ public interface CardService {
      */
     Page<CardInfoResponseDto> getAllCards(UUID ownerId, String status, Pageable pageable);
 
+    /**
+     * Выгрузка всех карт в формате NDJSON с маскированными номерами.
+     *
+     * @param out поток, в который пишется выгрузка
+     */
+    void exportCards(OutputStream out);
+
     /**
      * Получение карт конкретного пользователя с поддержкой пагинации.
      *
@@ -70,10 +91,31 @@ public interface CardService {
 
     /**
      * Перевод средств между картами пользователя.
+     * Повторный запрос с тем же ключом идемпотентности возвращает результат первого перевода.
+     *
+     * @param request        DTO с информацией о переводе (с какой карты, на какую, сумма)
+     * @param userId         UUID аутентифицированного пользователя, владельца карт
+     * @param idempotencyKey ключ идемпотентности или null, если клиент его не передал
+     */
+    String transfer(CardTransferRequestDto request, UUID userId, String idempotencyKey);
+
+    /**
+     * Пакетный перевод средств между картами в одной транзакции.
+     * Ошибка одного перевода не отменяет остальные, результат возвращается для каждого перевода.
+     *
+     * @param request DTO со списком переводов
+     * @param userId  UUID аутентифицированного пользователя, владельца карт
+     * @return результаты переводов
+     */
+    CardBatchTransferResponseDto transferBatch(CardBatchTransferRequestDto request, UUID userId);
+
+    /**
+     * Поиск карты по номеру.
      *
-     * @param request DTO с информацией о переводе (с какой карты, на какую, сумма)
+     * @param number номер карты
+     * @return информация о карте с маскированным номером
      */
-    String transfer(CardTransferRequestDto request);
+    CardInfoResponseDto findByNumber(String number);
 
     /**
      * Получение текущего баланса карты пользователя.
@@ -83,4 +125,15 @@ public interface CardService {
      * @return текущий баланс карты
      */
     BigDecimal getCardBalance(UUID cardId, UUID userId);
+
+    /**
+     * Получение истории переводов по карте пользователя.
+     *
+     * @param cardId UUID карты
+     * @param userId UUID пользователя
+     * @param cursor курсор, полученный с предыдущей страницей, или null для первой страницы
+     * @param size   размер страницы
+     * @return страница переводов и курсор следующей страницы
+     */
+    CardTransactionPageResponseDto getCardTransactions(UUID cardId, UUID userId, String cursor, int size);
 }
@@ -1,29 +1,47 @@
 package com.example.bankcards.service.impl;
 
 import com.example.bankcards.dto.request.AuthRequestDto;
+import com.example.bankcards.dto.request.RefreshTokenRequestDto;
 import com.example.bankcards.dto.request.RegisterRequestDto;
 import com.example.bankcards.dto.response.AuthResponseDto;
+import com.example.bankcards.dto.response.JwksResponseDto;
+import com.example.bankcards.entity.RefreshToken;
 import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.RoleName;
+import com.example.bankcards.exception.ExpiredTokenException;
+import com.example.bankcards.exception.InvalidTokenException;
 import com.example.bankcards.exception.LoginAlreadyExistsException;
-import com.example.bankcards.repository.RoleRepository;
+import com.example.bankcards.repository.RefreshTokenRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.JwtSigningKeys;
 import com.example.bankcards.security.JwtTokenProvider;
+import com.example.bankcards.security.RefreshTokenGenerator;
+import com.example.bankcards.security.RoleRegistry;
 import com.example.bankcards.service.AuthService;
 import com.example.bankcards.util.ExceptionMessages;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Set;
+import java.util.UUID;
 
 /**
  * Реализация сервиса отвечающего за регистрацию и авторизацию пользователей
+ * <p>
+ * Проверка пароля через BCrypt нужна только при входе. Истёкший токен доступа обновляется по токену обновления:
+ * это поиск по уникальному индексу хэша и выборка пользователя по первичному ключу
+ * </p>
  */
 
 @Slf4j
@@ -34,15 +52,21 @@ public class AuthServiceImpl implements AuthService {
 
     private final AuthenticationManager authenticationManager;
     private final JwtTokenProvider jwtTokenProvider;
+    private final JwtSigningKeys jwtSigningKeys;
     private final PasswordEncoder passwordEncoder;
     private final UserRepository userRepository;
-    private final RoleRepository roleRepository;
+    private final RoleRegistry roleRegistry;
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final RefreshTokenGenerator refreshTokenGenerator;
+
+    @Value("${jwt.refresh.expiration:30d}")
+    private Duration refreshTokenExpiration;
 
     /**
      * Попытка авторизации
      *
      * @param request запрос на авторизацию с логином и паролем
-     * @return JWT токен
+     * @return JWT токен и токен обновления новой цепочки
      */
     @Override
     public AuthResponseDto login(AuthRequestDto request) {
@@ -54,7 +78,58 @@ public class AuthServiceImpl implements AuthService {
 
         String token = jwtTokenProvider.generateToken(userDetails);
 
-        return new AuthResponseDto(token);
+        Instant now = Instant.now();
+        refreshTokenRepository.deleteExpiredByUserId(userDetails.getId(), now);
+
+        return new AuthResponseDto(token, issueRefreshToken(userDetails.getId(), UUID.randomUUID(), now));
+    }
+
+    /**
+     * Обмен токена обновления. Токен помечается использованным, и выдаётся следующий токен той же цепочки.
+     * Повторное предъявление уже использованного токена отзывает всю цепочку: этим токеном воспользовался
+     * кто-то ещё. Отзыв фиксируется, хотя запрос завершается ошибкой
+     *
+     * @param request запрос с токеном обновления
+     * @return новый JWT токен и следующий токен обновления
+     */
+    @Override
+    @Transactional(noRollbackFor = InvalidTokenException.class)
+    public AuthResponseDto refresh(RefreshTokenRequestDto request) {
+        RefreshToken refreshToken = refreshTokenRepository.findByTokenHash(
+                        refreshTokenGenerator.hash(request.refreshToken()))
+                .orElseThrow(() -> new InvalidTokenException(ExceptionMessages.REFRESH_TOKEN_NOT_VALID.getDescription()));
+
+        if (refreshToken.isRevoked()) {
+            throw new InvalidTokenException(ExceptionMessages.REFRESH_TOKEN_NOT_VALID.getDescription());
+        }
+
+        Instant now = Instant.now();
+        if (refreshToken.getUsedAt() != null || refreshTokenRepository.markUsed(refreshToken.getId(), now) == 0) {
+            int revoked = refreshTokenRepository.revokeFamily(refreshToken.getFamilyId());
+            log.warn("Повторное использование refresh токена пользователя с ID = {}, отозвано токенов: {}",
+                    refreshToken.getUserId(), revoked);
+            throw new InvalidTokenException(ExceptionMessages.REFRESH_TOKEN_REUSED.getDescription());
+        }
+        if (!refreshToken.getExpiresAt().isAfter(now)) {
+            throw new ExpiredTokenException(ExceptionMessages.REFRESH_TOKEN_EXPIRED.getDescription());
+        }
+
+        User user = userRepository.findById(refreshToken.getUserId())
+                .orElseThrow(() -> new InvalidTokenException(ExceptionMessages.REFRESH_TOKEN_NOT_VALID.getDescription()));
+
+        return new AuthResponseDto(jwtTokenProvider.generateToken(user),
+                issueRefreshToken(user.getId(), refreshToken.getFamilyId(), now));
+    }
+
+    /**
+     * Выход: отзывает цепочку токена обновления. Неизвестный токен игнорируется
+     *
+     * @param request запрос с токеном обновления
+     */
+    @Override
+    public void logout(RefreshTokenRequestDto request) {
+        refreshTokenRepository.findByTokenHash(refreshTokenGenerator.hash(request.refreshToken()))
+                .ifPresent(refreshToken -> refreshTokenRepository.revokeFamily(refreshToken.getFamilyId()));
     }
 
     /**
@@ -65,11 +140,11 @@ public class AuthServiceImpl implements AuthService {
      */
     @Override
     public String register(RegisterRequestDto request) {
-        if (userRepository.findByUsername(request.username()).isPresent()) {
+        if (userRepository.existsByUsername(request.username())) {
             throw new LoginAlreadyExistsException(ExceptionMessages.LOGIN_IS_TAKEN.getDescription());
         }
 
-        Set<Role> userRoles = roleRepository.findByNameIn(Set.of("USER"));
+        Set<Role> userRoles = Set.of(roleRegistry.get(RoleName.USER));
 
         User user = User.builder()
                 .username(request.username())
@@ -83,4 +158,31 @@ public class AuthServiceImpl implements AuthService {
 
         return "Пользователь с логином = " + user.getUsername() + " успешно зарегистрирован";
     }
+
+    /**
+     * Открытые ключи проверки JWT, база данных не используется
+     *
+     * @return набор ключей JWKS
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public JwksResponseDto getJwks() {
+        return JwksResponseDto.builder()
+                .keys(jwtSigningKeys.jwks())
+                .build();
+    }
+
+    private String issueRefreshToken(UUID userId, UUID familyId, Instant now) {
+        String token = refreshTokenGenerator.generate();
+
+        refreshTokenRepository.save(RefreshToken.builder()
+                .tokenHash(refreshTokenGenerator.hash(token))
+                .userId(userId)
+                .familyId(familyId)
+                .createdAt(now)
+                .expiresAt(now.plus(refreshTokenExpiration))
+                .build());
+
+        return token;
+    }
 }
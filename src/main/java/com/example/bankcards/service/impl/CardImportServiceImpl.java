@@ -0,0 +1,368 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.dto.request.CardCreateRequestDto;
+import com.example.bankcards.dto.response.CardImportErrorDto;
+import com.example.bankcards.dto.response.CardImportResponseDto;
+import com.example.bankcards.entity.enums.CardImportFormat;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.InternalServerException;
+import com.example.bankcards.security.CardNumberBlindIndex;
+import com.example.bankcards.security.CardNumberCipher;
+import com.example.bankcards.service.CardImportService;
+import com.example.bankcards.util.ExceptionMessages;
+import com.example.bankcards.util.MaskCardNumber;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Сервис массового импорта карт.
+ * <p>
+ * Файл читается построчно и делится на части по {@code card.import.chunk-size} строк. Разбор, проверка и шифрование
+ * номеров выполняются в пуле потоков, а части записываются в базу в порядке файла пакетными INSERT через JDBC,
+ * минуя контекст персистентности. Одновременно в работе не больше {@code card.import.max-in-flight} частей,
+ * поэтому потребление памяти не зависит от размера файла.
+ * </p>
+ * <p>
+ * Каждая часть сохраняется в отдельной транзакции: строки с ошибками пропускаются и попадают в отчёт. Если пакет
+ * нарушает ограничение базы данных (например, номер карты уже занят по уникальному индексу {@code number_hash}),
+ * строки части сохраняются по одной и в отчёт попадают только отклонённые. Другая ошибка базы данных отклоняет
+ * только свою часть, уже сохранённые части остаются в базе.
+ * </p>
+ */
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CardImportServiceImpl implements CardImportService {
+
+    /**
+     * Сколько ошибок в строках возвращается в ответе, остальные только учитываются в счётчике
+     */
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private static final int CSV_COLUMNS = 5;
+
+    private static final String CSV_HEADER_PREFIX = "ownerId";
+
+    private static final String INSERT_CARD_SQL = """
+            insert into card (id, card_number, last4, number_hash, owner_id, expiry_date, status, balance, version)
+            values (?, ?, ?, ?, ?, ?, cast(? as card_status), ?, 0)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CardNumberCipher cardNumberCipher;
+    private final CardNumberBlindIndex cardNumberBlindIndex;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final ExecutorService cardImportExecutor;
+
+    @Value("${card.import.chunk-size:1000}")
+    private int chunkSize = 1000;
+
+    @Value("${card.import.max-in-flight:8}")
+    private int maxInFlight = 8;
+
+    /**
+     * Импортирует карты из CSV или NDJSON.
+     * <p>
+     * CSV содержит колонки {@code ownerId,number,status,expiryDate,balance}, строка заголовка необязательна.
+     * Каждая строка NDJSON содержит объект в формате запроса на создание карты. Пустые строки пропускаются.
+     * </p>
+     *
+     * @param body   тело запроса с файлом
+     * @param format формат файла
+     * @return итоги импорта
+     * @throws BadRequestException если тело запроса не удалось прочитать
+     */
+
+    @Override
+    public CardImportResponseDto importCards(InputStream body, CardImportFormat format) {
+        ImportProgress progress = new ImportProgress();
+        Deque<Future<ParsedChunk>> inFlight = new ArrayDeque<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            List<String> lines = new ArrayList<>(chunkSize);
+            long firstLine = 1;
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                lines.add(line);
+                if (lines.size() == chunkSize) {
+                    submitChunk(inFlight, progress, firstLine, lines, format);
+                    firstLine = lineNumber + 1;
+                    lines = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!lines.isEmpty()) {
+                submitChunk(inFlight, progress, firstLine, lines, format);
+            }
+            while (!inFlight.isEmpty()) {
+                saveChunk(inFlight.poll(), progress);
+            }
+        } catch (IOException e) {
+            String exMessage = ExceptionMessages.IMPORT_READ_FAILED.getDescription();
+            log.warn("{}: {}", exMessage, e.getMessage());
+            throw new BadRequestException(exMessage);
+        } finally {
+            inFlight.forEach(future -> future.cancel(true));
+        }
+
+        log.info("Импорт карт: сохранено {}, отклонено {}", progress.imported, progress.failed);
+        return CardImportResponseDto.builder()
+                .imported(progress.imported)
+                .failed(progress.failed)
+                .errors(progress.errors)
+                .build();
+    }
+
+    /**
+     * Отправляет часть файла на разбор, предварительно сохраняя самую старую часть, если в работе их слишком много
+     *
+     * @param inFlight  части в работе в порядке файла
+     * @param progress  итоги импорта
+     * @param firstLine номер первой строки части
+     * @param lines     строки части
+     * @param format    формат файла
+     */
+
+    private void submitChunk(Deque<Future<ParsedChunk>> inFlight, ImportProgress progress,
+                             long firstLine, List<String> lines, CardImportFormat format) {
+        if (inFlight.size() >= maxInFlight) {
+            saveChunk(inFlight.poll(), progress);
+        }
+        inFlight.add(cardImportExecutor.submit(() -> parseChunk(firstLine, lines, format)));
+    }
+
+    /**
+     * Дожидается разбора части и сохраняет её корректные строки одним пакетным INSERT
+     *
+     * @param future   разбираемая часть
+     * @param progress итоги импорта
+     */
+
+    private void saveChunk(Future<ParsedChunk> future, ImportProgress progress) {
+        ParsedChunk chunk = awaitChunk(future);
+        progress.reject(chunk.errors());
+        if (chunk.rows().isEmpty()) {
+            return;
+        }
+        List<Object[]> params = chunk.rows().stream()
+                .map(ImportRow::params)
+                .toList();
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_CARD_SQL, params));
+            progress.imported += params.size();
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Пакет строк {}-{} нарушает ограничение базы данных, строки сохраняются по одной",
+                    chunk.firstLine(), chunk.lastLine(), e);
+            saveRows(chunk.rows(), progress);
+        } catch (DataAccessException e) {
+            String exMessage = ExceptionMessages.IMPORT_CHUNK_NOT_SAVED.getDescription()
+                    .formatted(chunk.firstLine(), chunk.lastLine());
+            log.warn(exMessage, e);
+            progress.failed += params.size();
+            progress.report(new CardImportErrorDto(chunk.firstLine(), exMessage));
+        }
+    }
+
+    /**
+     * Сохраняет строки части по одной, чтобы отклонить только строки, нарушающие ограничения базы данных
+     *
+     * @param rows     корректные строки части
+     * @param progress итоги импорта
+     */
+
+    private void saveRows(List<ImportRow> rows, ImportProgress progress) {
+        for (ImportRow row : rows) {
+            try {
+                jdbcTemplate.update(INSERT_CARD_SQL, row.params());
+                progress.imported++;
+            } catch (DataAccessException e) {
+                log.warn("Строка {} импорта не сохранена", row.lineNumber(), e);
+                progress.failed++;
+                progress.report(new CardImportErrorDto(row.lineNumber(),
+                        ExceptionMessages.IMPORT_ROW_NOT_SAVED.getDescription()));
+            }
+        }
+    }
+
+    /**
+     * Ожидает результат разбора части
+     *
+     * @param future разбираемая часть
+     * @return разобранная часть
+     */
+
+    private ParsedChunk awaitChunk(Future<ParsedChunk> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InternalServerException(ExceptionMessages.IMPORT_INTERRUPTED.getDescription());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new InternalServerException(e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Разбирает, проверяет и шифрует строки части файла, выполняется в пуле потоков импорта
+     *
+     * @param firstLine номер первой строки части
+     * @param lines     строки части
+     * @param format    формат файла
+     * @return корректные строки с параметрами INSERT и ошибки остальных
+     */
+
+    private ParsedChunk parseChunk(long firstLine, List<String> lines, CardImportFormat format) {
+        List<ImportRow> rows = new ArrayList<>(lines.size());
+        List<CardImportErrorDto> errors = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            long lineNumber = firstLine + i;
+            String line = lines.get(i);
+            if (line.isBlank() || (lineNumber == 1 && format == CardImportFormat.CSV
+                    && line.startsWith(CSV_HEADER_PREFIX))) {
+                continue;
+            }
+            try {
+                CardCreateRequestDto card = format == CardImportFormat.CSV ? parseCsv(line) : parseJson(line);
+                Set<ConstraintViolation<CardCreateRequestDto>> violations = validator.validate(card);
+                if (violations.isEmpty()) {
+                    rows.add(new ImportRow(lineNumber, toInsertParams(card)));
+                } else {
+                    ConstraintViolation<CardCreateRequestDto> violation = violations.iterator().next();
+                    errors.add(new CardImportErrorDto(lineNumber,
+                            violation.getPropertyPath() + ": " + violation.getMessage()));
+                }
+            } catch (IllegalArgumentException | DateTimeParseException | JsonProcessingException e) {
+                errors.add(new CardImportErrorDto(lineNumber, ExceptionMessages.IMPORT_ROW_INVALID.getDescription()));
+            }
+        }
+        return new ParsedChunk(firstLine, firstLine + lines.size() - 1, rows, errors);
+    }
+
+    /**
+     * Разбирает строку CSV: ownerId,number,status,expiryDate,balance
+     *
+     * @param line строка файла
+     * @return DTO карты
+     */
+
+    private CardCreateRequestDto parseCsv(String line) {
+        String[] columns = line.split(",", -1);
+        if (columns.length != CSV_COLUMNS) {
+            throw new IllegalArgumentException(ExceptionMessages.IMPORT_ROW_INVALID.getDescription());
+        }
+        return CardCreateRequestDto.builder()
+                .ownerId(UUID.fromString(columns[0].trim()))
+                .number(columns[1].trim())
+                .status(CardStatus.valueOf(columns[2].trim()))
+                .expiryDate(LocalDate.parse(columns[3].trim()))
+                .balance(new BigDecimal(columns[4].trim()))
+                .build();
+    }
+
+    /**
+     * Разбирает строку NDJSON
+     *
+     * @param line строка файла
+     * @return DTO карты
+     */
+
+    private CardCreateRequestDto parseJson(String line) throws JsonProcessingException {
+        return objectMapper.readValue(line, CardCreateRequestDto.class);
+    }
+
+    /**
+     * Готовит параметры INSERT для карты, номер карты шифруется
+     *
+     * @param card DTO карты
+     * @return параметры в порядке колонок {@link #INSERT_CARD_SQL}
+     */
+
+    private Object[] toInsertParams(CardCreateRequestDto card) {
+        return new Object[]{
+                UUID.randomUUID(),
+                cardNumberCipher.encrypt(card.number()),
+                MaskCardNumber.last4(card.number()),
+                cardNumberBlindIndex.of(card.number()),
+                card.ownerId(),
+                card.expiryDate(),
+                card.status().name(),
+                card.balance()
+        };
+    }
+
+    /**
+     * Разобранная часть файла
+     *
+     * @param firstLine номер первой строки части
+     * @param lastLine  номер последней строки части
+     * @param rows      корректные строки
+     * @param errors    ошибки в строках
+     */
+    private record ParsedChunk(long firstLine, long lastLine, List<ImportRow> rows, List<CardImportErrorDto> errors) {
+    }
+
+    /**
+     * Корректная строка файла
+     *
+     * @param lineNumber номер строки
+     * @param params     параметры INSERT в порядке колонок {@link #INSERT_CARD_SQL}
+     */
+    private record ImportRow(long lineNumber, Object[] params) {
+    }
+
+    /**
+     * Итоги импорта, изменяются только потоком, читающим файл
+     */
+    private static final class ImportProgress {
+
+        private long imported;
+        private long failed;
+        private final List<CardImportErrorDto> errors = new ArrayList<>();
+
+        private void reject(List<CardImportErrorDto> rowErrors) {
+            failed += rowErrors.size();
+            rowErrors.forEach(this::report);
+        }
+
+        private void report(CardImportErrorDto error) {
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(error);
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.dto.response.CardKeyRotationResponseDto;
+import com.example.bankcards.security.CardKeyRing;
+import com.example.bankcards.service.CardKeyService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+/**
+ * Сервис управления ключами шифрования номеров карт
+ */
+
+@Service
+@RequiredArgsConstructor
+public class CardKeyServiceImpl implements CardKeyService {
+
+    private final CardKeyRing cardKeyRing;
+    private final CardReEncryptionJob cardReEncryptionJob;
+
+    /**
+     * Создаёт ключ следующей версии и запускает фоновую перешифровку номеров.
+     * Прежние ключи остаются в таблице ключей, поэтому номера читаются и во время перешифровки
+     *
+     * @return версия нового ключа
+     */
+
+    @Override
+    public CardKeyRotationResponseDto rotateKey() {
+        int version = cardKeyRing.rotate();
+        cardReEncryptionJob.start();
+        return CardKeyRotationResponseDto.builder()
+                .keyVersion(version)
+                .build();
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.security.CardNumberBlindIndex;
+import com.example.bankcards.security.CardNumberCipher;
+import com.example.bankcards.util.MaskCardNumber;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Фоновое заполнение производных от номера колонок ({@code last4} и {@code number_hash}) для карт,
+ * выпущенных до их появления. Номера, сохранённые в прежнем формате, перешифровывает {@link CardReEncryptionJob}.
+ * <p>
+ * Номера зашифрованы ключом приложения, поэтому заполнить колонки миграцией нельзя. После запуска приложения
+ * такие карты обходятся по возрастанию идентификатора порциями по {@code card.number-backfill.batch-size},
+ * каждая порция обновляется пакетным UPDATE в своей транзакции. Версия карты не меняется, поэтому заполнение
+ * не мешает переводам с оптимистической блокировкой
+ * </p>
+ */
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CardNumberBackfill {
+
+    private static final String SELECT_BATCH_SQL = """
+            select id, card_number from card
+            where (last4 is null or number_hash is null) and id > ?
+            order by id
+            limit ?
+            """;
+
+    private static final String UPDATE_SQL = "update card set last4 = ?, number_hash = ? where id = ?";
+
+    private static final UUID MIN_UUID = new UUID(0, 0);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CardNumberCipher cardNumberCipher;
+    private final CardNumberBlindIndex cardNumberBlindIndex;
+
+    @Value("${card.number-backfill.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${card.number-backfill.batch-size:500}")
+    private int batchSize = 500;
+
+    /**
+     * Заполняет {@code last4} и {@code number_hash} для всех карт, у которых они не заданы
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (!enabled) {
+            return;
+        }
+        long updated = 0;
+        UUID lastId = MIN_UUID;
+        while (true) {
+            List<CardNumber> batch = jdbcTemplate.query(SELECT_BATCH_SQL,
+                    (rs, rowNum) -> new CardNumber(rs.getObject("id", UUID.class), rs.getString("card_number")),
+                    lastId, batchSize);
+            if (batch.isEmpty()) {
+                break;
+            }
+            List<Object[]> params = new ArrayList<>(batch.size());
+            for (CardNumber card : batch) {
+                try {
+                    String number = cardNumberCipher.decrypt(card.number());
+                    params.add(new Object[]{MaskCardNumber.last4(number), cardNumberBlindIndex.of(number), card.id()});
+                } catch (IllegalStateException | IllegalArgumentException e) {
+                    log.warn("Не удалось расшифровать номер карты с ID = {}, колонки номера не заполнены", card.id());
+                }
+            }
+            updated += update(params);
+            lastId = batch.get(batch.size() - 1).id();
+        }
+        if (updated > 0) {
+            log.info("Заполнены производные колонки номера для {} карт", updated);
+        }
+    }
+
+    /**
+     * Обновляет порцию одним пакетом, а если в ней есть номер, совпадающий с номером другой карты,
+     * обновляет строки по одной и пропускает дубликаты
+     *
+     * @param params параметры UPDATE
+     * @return количество обновлённых карт
+     */
+
+    private int update(List<Object[]> params) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPDATE_SQL, params));
+            return params.size();
+        } catch (DataIntegrityViolationException e) {
+            int updated = 0;
+            for (Object[] row : params) {
+                try {
+                    jdbcTemplate.update(UPDATE_SQL, row);
+                    updated++;
+                } catch (DataIntegrityViolationException duplicate) {
+                    log.warn("Номер карты с ID = {} совпадает с номером другой карты, колонки номера не заполнены",
+                            row[2]);
+                }
+            }
+            return updated;
+        }
+    }
+
+    /**
+     * Идентификатор и зашифрованный номер карты
+     */
+    private record CardNumber(UUID id, String number) {
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.security.CardNumberCipher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Фоновая перешифровка номеров карт активным ключом.
+ * <p>
+ * Запускается после старта приложения и после смены ключа. Карты, номер которых зашифрован не активным ключом
+ * (или сохранён в прежнем формате), обходятся по возрастанию идентификатора порциями по
+ * {@code card.re-encryption.batch-size}. Номера порции перешифровываются параллельно в пуле из
+ * {@code card.re-encryption.workers} потоков, порция сохраняется пакетным UPDATE в своей транзакции,
+ * а между порциями выдерживается пауза {@code card.re-encryption.pause}, поэтому перешифровка не забирает
+ * у запросов ни соединения, ни процессор надолго.
+ * </p>
+ * <p>
+ * UPDATE меняет номер, только если он не изменился с момента чтения, и не меняет версию карты, поэтому
+ * не конфликтует с переводами. Ход перешифровки публикуется в метриках {@code card.reencryption.*}
+ * </p>
+ */
+
+@Slf4j
+@Component
+public class CardReEncryptionJob {
+
+    private static final String COUNT_SQL = "select count(*) from card where card_number not like ?";
+
+    private static final String SELECT_BATCH_SQL = """
+            select id, card_number from card
+            where card_number not like ? and id > ?
+            order by id
+            limit ?
+            """;
+
+    private static final String UPDATE_SQL = """
+            update card set card_number = ?
+            where id = ? and card_number = ?
+            """;
+
+    private static final UUID MIN_UUID = new UUID(0, 0);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CardNumberCipher cardNumberCipher;
+    private final ExecutorService cardReEncryptionCoordinator;
+    private final ExecutorService cardReEncryptionExecutor;
+
+    private final AtomicBoolean requested = new AtomicBoolean();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong remaining = new AtomicLong();
+    private final Counter reEncryptedCards;
+    private final Counter failedCards;
+    private final Timer batchTimer;
+
+    @Value("${card.re-encryption.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${card.re-encryption.workers:2}")
+    private int workers = 2;
+
+    @Value("${card.re-encryption.batch-size:200}")
+    private int batchSize = 200;
+
+    @Value("${card.re-encryption.pause:100ms}")
+    private Duration pause = Duration.ofMillis(100);
+
+    public CardReEncryptionJob(JdbcTemplate jdbcTemplate,
+                               TransactionTemplate transactionTemplate,
+                               CardNumberCipher cardNumberCipher,
+                               ExecutorService cardReEncryptionCoordinator,
+                               ExecutorService cardReEncryptionExecutor,
+                               MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.cardNumberCipher = cardNumberCipher;
+        this.cardReEncryptionCoordinator = cardReEncryptionCoordinator;
+        this.cardReEncryptionExecutor = cardReEncryptionExecutor;
+        this.reEncryptedCards = Counter.builder("card.reencryption.cards")
+                .description("Карты, номер которых перешифрован активным ключом")
+                .tag("outcome", "re-encrypted")
+                .register(meterRegistry);
+        this.failedCards = Counter.builder("card.reencryption.cards")
+                .description("Карты, номер которых перешифрован активным ключом")
+                .tag("outcome", "failed")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("card.reencryption.batch")
+                .description("Время перешифровки и сохранения одной порции карт")
+                .register(meterRegistry);
+        Gauge.builder("card.reencryption.remaining", remaining, AtomicLong::get)
+                .description("Карты, которые осталось перешифровать в текущем обходе")
+                .register(meterRegistry);
+        Gauge.builder("card.reencryption.running", running, flag -> flag.get() ? 1 : 0)
+                .description("Идёт ли перешифровка")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Запускает перешифровку после старта приложения, если она включена
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startOnReady() {
+        if (enabled) {
+            start();
+        }
+    }
+
+    /**
+     * Запускает перешифровку в фоновом потоке. Если она уже идёт, после её окончания выполняется ещё один обход,
+     * чтобы подхватить карты, зашифрованные ключом, который сменился во время обхода
+     */
+    public void start() {
+        requested.set(true);
+        if (running.compareAndSet(false, true)) {
+            cardReEncryptionCoordinator.execute(this::drain);
+        }
+    }
+
+    /**
+     * Выполняет обходы, пока они запрошены
+     */
+
+    private void drain() {
+        do {
+            try {
+                while (requested.getAndSet(false)) {
+                    reEncryptAll();
+                }
+            } finally {
+                running.set(false);
+            }
+        } while (requested.get() && running.compareAndSet(false, true));
+    }
+
+    /**
+     * Перешифровывает все карты, номер которых зашифрован не активным ключом
+     */
+
+    private void reEncryptAll() {
+        String prefix = cardNumberCipher.currentPrefix();
+        String pattern = prefix + "%";
+        try {
+            Long total = jdbcTemplate.queryForObject(COUNT_SQL, Long.class, pattern);
+            remaining.set(total == null ? 0 : total);
+            if (remaining.get() == 0) {
+                return;
+            }
+            log.info("Перешифровка номеров карт ключом {}: карт для перешифровки {}", prefix, remaining.get());
+            long updated = 0;
+            UUID lastId = MIN_UUID;
+            while (true) {
+                List<CardNumber> batch = jdbcTemplate.query(SELECT_BATCH_SQL,
+                        (rs, rowNum) -> new CardNumber(rs.getObject("id", UUID.class), rs.getString("card_number")),
+                        pattern, lastId, batchSize);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                long started = System.nanoTime();
+                List<Object[]> params = reEncrypt(batch);
+                int saved = save(params);
+                batchTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                reEncryptedCards.increment(saved);
+                failedCards.increment(batch.size() - params.size());
+                remaining.updateAndGet(value -> Math.max(0, value - batch.size()));
+                updated += saved;
+                lastId = batch.get(batch.size() - 1).id();
+                TimeUnit.NANOSECONDS.sleep(pause.toNanos());
+            }
+            log.info("Перешифровка номеров карт ключом {} завершена, перешифровано {} карт", prefix, updated);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Перешифровка номеров карт ключом {} прервана", prefix);
+        } catch (RuntimeException e) {
+            log.error("Перешифровка номеров карт ключом {} остановлена: {}", prefix, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Перешифровывает номера порции, разделив её между потоками пула
+     *
+     * @param batch порция карт
+     * @return параметры UPDATE для номеров, которые удалось перешифровать
+     */
+
+    private List<Object[]> reEncrypt(List<CardNumber> batch) throws InterruptedException {
+        int sliceSize = (batch.size() + workers - 1) / workers;
+        List<Future<List<Object[]>>> slices = new ArrayList<>(workers);
+        for (int from = 0; from < batch.size(); from += sliceSize) {
+            List<CardNumber> slice = batch.subList(from, Math.min(from + sliceSize, batch.size()));
+            slices.add(cardReEncryptionExecutor.submit(() -> reEncryptSlice(slice)));
+        }
+        List<Object[]> params = new ArrayList<>(batch.size());
+        try {
+            for (Future<List<Object[]>> slice : slices) {
+                params.addAll(slice.get());
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            slices.forEach(slice -> slice.cancel(true));
+        }
+        return params;
+    }
+
+    /**
+     * Перешифровывает часть порции, выполняется в пуле потоков перешифровки
+     *
+     * @param slice часть порции
+     * @return параметры UPDATE в порядке {@link #UPDATE_SQL}
+     */
+
+    private List<Object[]> reEncryptSlice(List<CardNumber> slice) {
+        List<Object[]> params = new ArrayList<>(slice.size());
+        for (CardNumber card : slice) {
+            try {
+                String number = cardNumberCipher.decrypt(card.number());
+                params.add(new Object[]{cardNumberCipher.encrypt(number), card.id(), card.number()});
+            } catch (IllegalStateException | IllegalArgumentException e) {
+                log.warn("Не удалось расшифровать номер карты с ID = {}, номер не перешифрован", card.id());
+            }
+        }
+        return params;
+    }
+
+    /**
+     * Сохраняет порцию одним пакетным UPDATE в отдельной транзакции
+     *
+     * @param params параметры UPDATE
+     * @return количество обновлённых карт
+     */
+
+    private int save(List<Object[]> params) {
+        if (params.isEmpty()) {
+            return 0;
+        }
+        int[] counts = transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(UPDATE_SQL, params));
+        return counts == null ? 0 : (int) Arrays.stream(counts).filter(count -> count != 0).count();
+    }
+
+    /**
+     * Идентификатор и зашифрованный номер карты
+     */
+    private record CardNumber(UUID id, String number) {
+    }
+}
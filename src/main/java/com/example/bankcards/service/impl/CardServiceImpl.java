@@ -1,32 +1,72 @@
 package com.example.bankcards.service.impl;
 
+import com.example.bankcards.dto.request.CardBatchTransferRequestDto;
+import com.example.bankcards.dto.request.CardBulkCreateRequestDto;
 import com.example.bankcards.dto.request.CardCreateRequestDto;
 import com.example.bankcards.dto.request.CardTransferRequestDto;
+import com.example.bankcards.dto.response.CardBatchTransferResponseDto;
 import com.example.bankcards.dto.response.CardInfoResponseDto;
+import com.example.bankcards.dto.response.CardTransactionPageResponseDto;
+import com.example.bankcards.dto.response.CardTransactionResponseDto;
+import com.example.bankcards.dto.response.CardTransferResultDto;
 import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardTransaction;
 import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.TransferMode;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.CardAlreadyExistsException;
 import com.example.bankcards.exception.CardIsNotActiveException;
 import com.example.bankcards.exception.CardNotOwnedException;
 import com.example.bankcards.exception.InsufficientBalanceException;
+import com.example.bankcards.exception.InternalServerException;
 import com.example.bankcards.exception.NotFoundException;
 import com.example.bankcards.exception.SameCardTransferException;
+import com.example.bankcards.exception.TransferConflictException;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardTransactionRepository;
+import com.example.bankcards.security.CardNumberBlindIndex;
+import com.example.bankcards.security.CardNumberCipher;
 import com.example.bankcards.service.CardService;
 import com.example.bankcards.specification.CardSpecification;
 import com.example.bankcards.util.mapper.CardMapper;
 import com.example.bankcards.util.ExceptionMessages;
 import com.example.bankcards.util.MaskCardNumber;
+import com.example.bankcards.util.TransactionCursor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
-import org.springframework.security.crypto.encrypt.TextEncryptor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Сервис для управления картами пользователя.
@@ -43,24 +83,95 @@ import java.util.UUID;
 @Transactional
 public class CardServiceImpl implements CardService {
 
+    /**
+     * Порядок идентификаторов карт, совпадающий с сортировкой uuid в PostgreSQL (побайтовое беззнаковое сравнение)
+     */
+    private static final Comparator<UUID> UUID_DB_ORDER = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    /**
+     * Максимальный размер страницы истории переводов
+     */
+    private static final int MAX_TRANSACTIONS_PAGE_SIZE = 100;
+
+    /**
+     * Максимальная длина ключа идемпотентности, вместе с идентификатором пользователя ключ помещается в колонку журнала
+     */
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 63;
+
+    private static final String TRANSFER_SUCCESS = "Перевод прошёл успешно";
+
     private final CardRepository cardRepository;
+    private final CardTransactionRepository cardTransactionRepository;
     private final CardMapper cardMapper;
-    private final TextEncryptor textEncryptor;
+    private final CardNumberCipher cardNumberCipher;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache<String, CardTransaction> transferIdempotencyCache;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final CardNumberBlindIndex cardNumberBlindIndex;
+
+    @Value("${card.transfer.mode:PESSIMISTIC}")
+    private TransferMode transferMode = TransferMode.PESSIMISTIC;
+
+    @Value("${card.transfer.optimistic.max-attempts:5}")
+    private int optimisticMaxAttempts = 5;
+
+    @Value("${card.transfer.optimistic.backoff-ms:10}")
+    private long optimisticBackoffMs = 10;
+
+    @Value("${card.transfer.optimistic.max-backoff-ms:200}")
+    private long optimisticMaxBackoffMs = 200;
 
     /**
      * Создаёт новую банковскую карту.
      *
      * @param cardDto DTO с данными карты
-     * @return DTO созданной карты
+     * @return DTO созданной карты с маскированным номером
+     * @throws CardAlreadyExistsException если карта с таким номером уже есть
      */
 
     @Override
     public CardInfoResponseDto createCard(CardCreateRequestDto cardDto) {
         Card card = cardMapper.toCard(cardDto);
-        card.setNumber(textEncryptor.encrypt(card.getNumber()));
+        protectNumber(card);
+        checkNumbersAreFree(List.of(card.getNumberHash()));
         Card saved = cardRepository.save(card);
         log.info("Карта с ID = {} была создана", saved.getId());
-        return cardMapper.toDto(saved);
+        return toDtoMasked(saved);
+    }
+
+    /**
+     * Выпускает несколько карт одной транзакцией.
+     * <p>
+     * Идентификатор карты генерируется на стороне приложения, поэтому вставки не требуют обращения к базе
+     * до конца транзакции и отправляются пакетными JDBC-запросами ({@code hibernate.jdbc.batch_size}).
+     * </p>
+     *
+     * @param request DTO со списком карт
+     * @return DTO созданных карт с маскированными номерами
+     * @throws CardAlreadyExistsException если номер повторяется в запросе или уже есть в системе
+     */
+
+    @Override
+    public List<CardInfoResponseDto> createCards(CardBulkCreateRequestDto request) {
+        List<Card> cards = new ArrayList<>(request.cards().size());
+        Set<String> numberHashes = new HashSet<>();
+        for (CardCreateRequestDto cardDto : request.cards()) {
+            Card card = cardMapper.toCard(cardDto);
+            protectNumber(card);
+            if (!numberHashes.add(card.getNumberHash())) {
+                throw new CardAlreadyExistsException(ExceptionMessages.CARD_NUMBER_EXISTS.getDescription());
+            }
+            cards.add(card);
+        }
+        checkNumbersAreFree(numberHashes);
+        List<Card> saved = cardRepository.saveAll(cards);
+        log.info("Выпущено карт: {}", saved.size());
+        return saved.stream()
+                .map(this::toDtoMasked)
+                .toList();
     }
 
     /**
@@ -111,6 +222,36 @@ public class CardServiceImpl implements CardService {
                 .map(this::toDtoMasked);
     }
 
+    /**
+     * Выгружает все карты в формате NDJSON, по одной карте с маскированным номером в строке.
+     * <p>
+     * Карты читаются из курсора базы данных и пишутся в поток по одной, после записи карта отсоединяется
+     * от контекста персистентности, поэтому потребление памяти не зависит от количества карт.
+     * </p>
+     *
+     * @param out поток, в который пишется выгрузка
+     * @throws InternalServerException если не удалось записать выгрузку
+     */
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportCards(OutputStream out) {
+        long exported = 0;
+        try (Stream<Card> cards = cardRepository.streamAll();
+             SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(out)) {
+            for (Card card : (Iterable<Card>) cards::iterator) {
+                writer.write(toDtoMasked(card));
+                entityManager.detach(card);
+                exported++;
+            }
+        } catch (IOException e) {
+            String exMessage = ExceptionMessages.EXPORT_FAILED.getDescription();
+            log.warn("{} после {} карт: {}", exMessage, exported, e.getMessage());
+            throw new InternalServerException(exMessage);
+        }
+        log.info("Выгружено карт: {}", exported);
+    }
+
     /**
      * Возвращает список карт конкретного пользователя.
      *
@@ -147,32 +288,134 @@ public class CardServiceImpl implements CardService {
      * <p>
      * Проверяет принадлежность карты отправителя,
      * достаточность баланса и атомарно выполняет перевод.
+     * Способ перевода задаётся свойством {@code card.transfer.mode}, см. {@link TransferMode}.
+     * Каждая попытка перевода выполняется в отдельной транзакции, чтобы при оптимистической блокировке
+     * перевод можно было повторить. В той же транзакции перевод записывается в журнал операций.
+     * </p>
+     * <p>
+     * Если передан ключ идемпотентности, он сохраняется в журнале вместе с переводом. Повтор запроса с тем же
+     * ключом не выполняет перевод заново, а возвращает прежний результат. Недавние ключи хранятся в памяти,
+     * а одновременные повторы отсекает уникальный индекс журнала.
      * </p>
      *
-     * @param request DTO с параметрами перевода
+     * @param request        DTO с параметрами перевода
+     * @param userId         идентификатор аутентифицированного пользователя
+     * @param idempotencyKey ключ идемпотентности из заголовка запроса или null
      * @throws InsufficientBalanceException если недостаточно средств
      * @throws CardNotOwnedException        если карта не принадлежит пользователю
+     * @throws BadRequestException          если ключ уже использован для другого перевода
      */
 
     @Override
-    public String transfer(CardTransferRequestDto request) {
-        Card fromCard = getCardAndCheckOwnership(request.fromCardId(), request.userId());
-        Card toCard = getCardAndCheckOwnership(request.toCardId(), request.userId());
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public String transfer(CardTransferRequestDto request, UUID userId, String idempotencyKey) {
+        String scopedKey = scopeIdempotencyKey(userId, idempotencyKey);
+        if (scopedKey != null) {
+            Optional<CardTransaction> completed = findCompletedTransfer(scopedKey);
+            if (completed.isPresent()) {
+                return replayTransfer(completed.get(), request, userId);
+            }
+        }
 
-        checkIfCardIsActive(fromCard);
-        checkIfCardIsActive(toCard);
+        checkFromCardAndToCard(request.fromCardId(), request.toCardId(), userId);
+
+        try {
+            switch (transferMode) {
+                case PESSIMISTIC -> transactionTemplate.executeWithoutResult(
+                        status -> transferWithRowLocks(request, userId, scopedKey));
+                case ATOMIC -> transactionTemplate.executeWithoutResult(
+                        status -> transferWithConditionalUpdates(request, userId, scopedKey));
+                case OPTIMISTIC -> transferWithOptimisticRetry(request, userId, scopedKey);
+            }
+        } catch (DataIntegrityViolationException e) {
+            if (scopedKey == null) {
+                throw e;
+            }
+            CardTransaction completed = cardTransactionRepository.findByIdempotencyKey(scopedKey)
+                    .orElseThrow(() -> e);
+            return replayTransfer(completed, request, userId);
+        }
+        if (scopedKey != null) {
+            transferIdempotencyCache.put(scopedKey, toLedgerEntry(request, scopedKey));
+        }
 
-        checkCardBalanceForTransfer(fromCard, request.amount());
-        checkFromCardAndToCard(request.fromCardId(), request.toCardId(), request.userId());
+        log.info("Пользователь с ID = {} перевел {} рублей с карты с ID = {} на карту с ID = {}",
+                userId, request.amount(), request.fromCardId(), request.toCardId());
+        return TRANSFER_SUCCESS;
+    }
 
-        fromCard.setBalance(fromCard.getBalance().subtract(request.amount()));
-        toCard.setBalance(toCard.getBalance().add(request.amount()));
+    /**
+     * Выполняет пакет переводов в одной транзакции.
+     * <p>
+     * Все карты из пакета блокируются одним запросом в порядке возрастания идентификатора, после чего переводы
+     * применяются к балансам в памяти по порядку, так что каждый следующий перевод видит результат предыдущих.
+     * Изменённые карты и записи журнала сохраняются в конце транзакции пакетными JDBC-запросами.
+     * Пакет всегда выполняется с блокировкой строк, независимо от {@code card.transfer.mode}.
+     * Владелец карт — аутентифицированный пользователь.
+     * </p>
+     *
+     * @param request DTO со списком переводов
+     * @param userId  идентификатор аутентифицированного пользователя
+     * @return результат каждого перевода в порядке запроса
+     */
 
-        cardRepository.save(fromCard);
-        cardRepository.save(toCard);
-        log.info("Пользователь с ID = {} перевел {} рублей с карты с ID = {} на карту с ID = {}",
-                request.userId(), request.amount(), fromCard.getId(), toCard.getId());
-        return "Перевод прошёл успешно";
+    @Override
+    public CardBatchTransferResponseDto transferBatch(CardBatchTransferRequestDto request, UUID userId) {
+        List<CardTransferRequestDto> transfers = request.transfers();
+        Set<UUID> cardIds = new HashSet<>();
+        for (CardTransferRequestDto transfer : transfers) {
+            cardIds.add(transfer.fromCardId());
+            cardIds.add(transfer.toCardId());
+        }
+        Map<UUID, Card> lockedCards = lockCards(cardIds);
+
+        List<CardTransferResultDto> results = new ArrayList<>(transfers.size());
+        List<CardTransaction> ledgerEntries = new ArrayList<>(transfers.size());
+        Map<UUID, Card> changedCards = new LinkedHashMap<>();
+        for (int i = 0; i < transfers.size(); i++) {
+            CardTransferRequestDto transfer = transfers.get(i);
+            try {
+                applyLockedTransfer(lockedCards, transfer, userId);
+            } catch (SameCardTransferException | NotFoundException | CardNotOwnedException
+                     | CardIsNotActiveException | InsufficientBalanceException e) {
+                results.add(CardTransferResultDto.builder().index(i).success(false).message(e.getMessage()).build());
+                continue;
+            }
+            changedCards.put(transfer.fromCardId(), lockedCards.get(transfer.fromCardId()));
+            changedCards.put(transfer.toCardId(), lockedCards.get(transfer.toCardId()));
+            ledgerEntries.add(toLedgerEntry(transfer, null));
+            results.add(CardTransferResultDto.builder().index(i).success(true).message(TRANSFER_SUCCESS).build());
+        }
+
+        cardRepository.saveAll(changedCards.values());
+        cardTransactionRepository.saveAll(ledgerEntries);
+
+        log.info("Пакетный перевод: выполнено {} из {} переводов", ledgerEntries.size(), transfers.size());
+        return CardBatchTransferResponseDto.builder()
+                .succeeded(ledgerEntries.size())
+                .failed(transfers.size() - ledgerEntries.size())
+                .results(results)
+                .build();
+    }
+
+    /**
+     * Ищет карту по номеру без расшифровки таблицы: номер переводится в слепой индекс,
+     * по которому карта находится через уникальный индекс.
+     *
+     * @param number номер карты
+     * @return DTO карты с маскированным номером
+     * @throws NotFoundException если карты с таким номером нет
+     */
+
+    @Override
+    public CardInfoResponseDto findByNumber(String number) {
+        return cardRepository.findByNumberHash(cardNumberBlindIndex.of(number))
+                .map(this::toDtoMasked)
+                .orElseThrow(() -> {
+                    String exMessage = ExceptionMessages.CARD_NOT_FOUND_BY_NUMBER.getDescription();
+                    log.warn(exMessage);
+                    return new NotFoundException(exMessage);
+                });
     }
 
     /**
@@ -189,6 +432,322 @@ public class CardServiceImpl implements CardService {
         return card.getBalance();
     }
 
+    /**
+     * Показывает историю переводов по карте, от новых к старым.
+     * <p>
+     * Страницы строятся по курсору (created_at, id), а не по смещению: следующая страница начинается
+     * сразу после последней записи предыдущей, а общее количество записей не подсчитывается.
+     * Запрашивается на одну запись больше размера страницы, чтобы понять, есть ли следующая страница.
+     * </p>
+     *
+     * @param cardId идентификатор карты
+     * @param userId идентификатор пользователя
+     * @param cursor курсор следующей страницы или null для первой страницы
+     * @param size   размер страницы, ограничивается {@value #MAX_TRANSACTIONS_PAGE_SIZE}
+     * @return страница переводов
+     * @throws CardNotOwnedException если карта не принадлежит пользователю
+     */
+
+    @Override
+    public CardTransactionPageResponseDto getCardTransactions(UUID cardId, UUID userId, String cursor, int size) {
+        getCardAndCheckOwnership(cardId, userId);
+
+        TransactionCursor position = TransactionCursor.decode(cursor);
+        int pageSize = Math.max(1, Math.min(size, MAX_TRANSACTIONS_PAGE_SIZE));
+        List<CardTransaction> transactions = cardTransactionRepository.findPageByCardId(
+                cardId, position.createdAt(), position.id(), pageSize + 1);
+
+        String nextCursor = null;
+        if (transactions.size() > pageSize) {
+            transactions = transactions.subList(0, pageSize);
+            CardTransaction last = transactions.get(pageSize - 1);
+            nextCursor = new TransactionCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        List<CardTransactionResponseDto> content = transactions.stream()
+                .map(cardMapper::toTransactionDto)
+                .toList();
+        return CardTransactionPageResponseDto.builder()
+                .content(content)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * Перевод с блокировкой обеих карт в базе данных (SELECT ... FOR UPDATE).
+     * <p>
+     * Карты блокируются в порядке возрастания идентификатора, поэтому параллельные переводы
+     * с одной карты не теряют обновления баланса и не блокируют друг друга навечно.
+     * </p>
+     *
+     * @param request        DTO с параметрами перевода
+     * @param userId         идентификатор аутентифицированного пользователя
+     * @param idempotencyKey ключ идемпотентности или null
+     */
+
+    private void transferWithRowLocks(CardTransferRequestDto request, UUID userId, String idempotencyKey) {
+        Map<UUID, Card> lockedCards = lockCards(List.of(request.fromCardId(), request.toCardId()));
+        applyLockedTransfer(lockedCards, request, userId);
+
+        cardRepository.save(lockedCards.get(request.fromCardId()));
+        cardRepository.save(lockedCards.get(request.toCardId()));
+        recordTransaction(request, idempotencyKey);
+    }
+
+    /**
+     * Проверяет перевод и переносит сумму между уже заблокированными картами, не сохраняя их
+     *
+     * @param lockedCards заблокированные карты
+     * @param request     DTO с параметрами перевода
+     * @param userId      идентификатор аутентифицированного пользователя
+     */
+
+    private void applyLockedTransfer(Map<UUID, Card> lockedCards, CardTransferRequestDto request, UUID userId) {
+        checkFromCardAndToCard(request.fromCardId(), request.toCardId(), userId);
+        Card fromCard = checkOwnership(getLockedCard(lockedCards, request.fromCardId()), userId);
+        Card toCard = checkOwnership(getLockedCard(lockedCards, request.toCardId()), userId);
+
+        checkIfCardIsActive(fromCard);
+        checkIfCardIsActive(toCard);
+
+        checkCardBalanceForTransfer(fromCard, request.amount());
+
+        fromCard.setBalance(fromCard.getBalance().subtract(request.amount()));
+        toCard.setBalance(toCard.getBalance().add(request.amount()));
+    }
+
+    /**
+     * Перевод двумя условными UPDATE без чтения карт.
+     * <p>
+     * Все проверки (владелец, статус, баланс) выполняются в условии UPDATE, успех определяется по количеству
+     * изменённых строк. Карты читаются только если одно из условий не выполнено, чтобы выбросить то же
+     * исключение, что и при обычном переводе. UPDATE выполняются в порядке возрастания идентификатора карты,
+     * поэтому встречные переводы не приводят к deadlock.
+     * </p>
+     *
+     * @param request        DTO с параметрами перевода
+     * @param userId         идентификатор аутентифицированного пользователя
+     * @param idempotencyKey ключ идемпотентности или null
+     */
+
+    private void transferWithConditionalUpdates(CardTransferRequestDto request, UUID userId,
+                                                String idempotencyKey) {
+        if (UUID_DB_ORDER.compare(request.fromCardId(), request.toCardId()) < 0) {
+            debit(request, userId);
+            credit(request, userId);
+        } else {
+            credit(request, userId);
+            debit(request, userId);
+        }
+        recordTransaction(request, idempotencyKey);
+    }
+
+    /**
+     * Перевод с оптимистической блокировкой: карты читаются без блокировки, а при сохранении проверяется их версия.
+     * <p>
+     * Если карту успели изменить параллельно, попытка откатывается и повторяется после случайной паузы,
+     * растущей экспоненциально, но не более {@code card.transfer.optimistic.max-attempts} раз.
+     * </p>
+     *
+     * @param request        DTO с параметрами перевода
+     * @param userId         идентификатор аутентифицированного пользователя
+     * @param idempotencyKey ключ идемпотентности или null
+     * @throws TransferConflictException если все попытки завершились конфликтом версий
+     */
+
+    private void transferWithOptimisticRetry(CardTransferRequestDto request, UUID userId, String idempotencyKey) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(
+                        status -> transferWithVersionCheck(request, userId, idempotencyKey));
+                return;
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= optimisticMaxAttempts) {
+                    String exMessage = ExceptionMessages.TRANSFER_CONFLICT.getDescription();
+                    log.warn("{} (попыток: {})", exMessage, attempt);
+                    throw new TransferConflictException(exMessage);
+                }
+                log.debug("Конфликт версий при переводе с карты с ID = {}, попытка {}", request.fromCardId(), attempt);
+                pauseBeforeRetry(attempt);
+            }
+        }
+    }
+
+    /**
+     * Одна попытка перевода без блокировок, конфликт обнаруживается по версии карт при фиксации транзакции
+     *
+     * @param request        DTO с параметрами перевода
+     * @param userId         идентификатор аутентифицированного пользователя
+     * @param idempotencyKey ключ идемпотентности или null
+     */
+
+    private void transferWithVersionCheck(CardTransferRequestDto request, UUID userId, String idempotencyKey) {
+        Card fromCard = getCardAndCheckOwnership(request.fromCardId(), userId);
+        Card toCard = getCardAndCheckOwnership(request.toCardId(), userId);
+
+        checkIfCardIsActive(fromCard);
+        checkIfCardIsActive(toCard);
+
+        checkCardBalanceForTransfer(fromCard, request.amount());
+
+        fromCard.setBalance(fromCard.getBalance().subtract(request.amount()));
+        toCard.setBalance(toCard.getBalance().add(request.amount()));
+
+        cardRepository.save(fromCard);
+        cardRepository.save(toCard);
+        recordTransaction(request, idempotencyKey);
+    }
+
+    /**
+     * Добавляет запись о переводе в журнал операций в текущей транзакции
+     *
+     * @param request        DTO с параметрами перевода
+     * @param idempotencyKey ключ идемпотентности или null
+     */
+
+    private void recordTransaction(CardTransferRequestDto request, String idempotencyKey) {
+        cardTransactionRepository.save(toLedgerEntry(request, idempotencyKey));
+    }
+
+    /**
+     * Создаёт запись журнала операций для перевода
+     *
+     * @param request        DTO с параметрами перевода
+     * @param idempotencyKey ключ идемпотентности или null
+     * @return запись журнала
+     */
+
+    private CardTransaction toLedgerEntry(CardTransferRequestDto request, String idempotencyKey) {
+        return CardTransaction.builder()
+                .fromCardId(request.fromCardId())
+                .toCardId(request.toCardId())
+                .amount(request.amount())
+                .createdAt(Instant.now())
+                .idempotencyKey(idempotencyKey)
+                .build();
+    }
+
+    /**
+     * Привязывает ключ идемпотентности к пользователю, чтобы ключи разных пользователей не пересекались
+     *
+     * @param userId         идентификатор пользователя
+     * @param idempotencyKey ключ из заголовка запроса
+     * @return ключ для хранения в журнале или null, если ключ не передан
+     * @throws BadRequestException если ключ слишком длинный
+     */
+
+    private String scopeIdempotencyKey(UUID userId, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return null;
+        }
+        if (idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new BadRequestException(ExceptionMessages.INVALID_IDEMPOTENCY_KEY.getDescription());
+        }
+        return userId + ":" + idempotencyKey;
+    }
+
+    /**
+     * Ищет перевод, уже выполненный с этим ключом: сначала в кэше, затем в журнале операций
+     *
+     * @param scopedKey ключ идемпотентности
+     * @return выполненный перевод, если он есть
+     */
+
+    private Optional<CardTransaction> findCompletedTransfer(String scopedKey) {
+        CardTransaction cached = transferIdempotencyCache.getIfPresent(scopedKey);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<CardTransaction> stored = cardTransactionRepository.findByIdempotencyKey(scopedKey);
+        stored.ifPresent(transaction -> transferIdempotencyCache.put(scopedKey, transaction));
+        return stored;
+    }
+
+    /**
+     * Возвращает результат ранее выполненного перевода, если повторный запрос совпадает с исходным
+     *
+     * @param completed выполненный перевод
+     * @param request   повторный запрос
+     * @param userId    идентификатор аутентифицированного пользователя
+     * @return сообщение об успешном переводе
+     * @throws BadRequestException если с тем же ключом пришёл другой перевод
+     */
+
+    private String replayTransfer(CardTransaction completed, CardTransferRequestDto request, UUID userId) {
+        if (!completed.getFromCardId().equals(request.fromCardId())
+                || !completed.getToCardId().equals(request.toCardId())
+                || completed.getAmount().compareTo(request.amount()) != 0) {
+            throw new BadRequestException(ExceptionMessages.IDEMPOTENCY_KEY_REUSED.getDescription());
+        }
+        log.info("Повторный запрос перевода с ключом {} от пользователя с ID = {}, перевод не выполнялся заново",
+                completed.getIdempotencyKey(), userId);
+        return TRANSFER_SUCCESS;
+    }
+
+    /**
+     * Пауза перед повтором перевода: случайное значение от нуля до экспоненциально растущей границы
+     *
+     * @param attempt номер неудачной попытки
+     */
+
+    private void pauseBeforeRetry(int attempt) {
+        long bound = Math.min(optimisticMaxBackoffMs, optimisticBackoffMs << Math.min(attempt, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransferConflictException(ExceptionMessages.TRANSFER_CONFLICT.getDescription());
+        }
+    }
+
+    /**
+     * Списывает сумму перевода с карты отправителя
+     *
+     * @param request DTO с параметрами перевода
+     * @param userId  идентификатор аутентифицированного пользователя
+     */
+
+    private void debit(CardTransferRequestDto request, UUID userId) {
+        if (cardRepository.debitActiveCard(request.fromCardId(), userId, request.amount()) == 0) {
+            throw diagnoseFailedTransfer(request, userId);
+        }
+    }
+
+    /**
+     * Зачисляет сумму перевода на карту получателя
+     *
+     * @param request DTO с параметрами перевода
+     * @param userId  идентификатор аутентифицированного пользователя
+     */
+
+    private void credit(CardTransferRequestDto request, UUID userId) {
+        if (cardRepository.creditActiveCard(request.toCardId(), userId, request.amount()) == 0) {
+            throw diagnoseFailedTransfer(request, userId);
+        }
+    }
+
+    /**
+     * Читает карты после неудачного условного UPDATE и выбрасывает исключение с причиной отказа
+     *
+     * @param request DTO с параметрами перевода
+     * @param userId  идентификатор аутентифицированного пользователя
+     * @return исключение о конфликте, если к моменту чтения все условия перевода уже выполняются
+     */
+
+    private TransferConflictException diagnoseFailedTransfer(CardTransferRequestDto request, UUID userId) {
+        Card fromCard = getCardAndCheckOwnership(request.fromCardId(), userId);
+        Card toCard = getCardAndCheckOwnership(request.toCardId(), userId);
+
+        checkIfCardIsActive(fromCard);
+        checkIfCardIsActive(toCard);
+
+        checkCardBalanceForTransfer(fromCard, request.amount());
+
+        String exMessage = ExceptionMessages.TRANSFER_CONFLICT.getDescription();
+        log.warn(exMessage);
+        return new TransferConflictException(exMessage);
+    }
+
     /**
      * Проверяет принадлежит ли карта пользователю и выбрасывает исключение если не принадлежит
      *
@@ -198,16 +757,58 @@ public class CardServiceImpl implements CardService {
      */
 
     private Card getCardAndCheckOwnership(UUID cardId, UUID userId) {
-        Card card = getCard(cardId);
+        return checkOwnership(getCard(cardId), userId);
+    }
+
+    /**
+     * Проверяет принадлежит ли уже загруженная карта пользователю
+     *
+     * @param card   карта
+     * @param userId идентификатор пользователя
+     * @return ту же карту, если она принадлежит пользователю
+     */
+
+    private Card checkOwnership(Card card, UUID userId) {
         if (!card.getOwnerId().equals(userId)) {
             String exMessage = ExceptionMessages.CARD_NOT_BELONGS_TO_YOU.getDescription().
-                    formatted(userId, cardId);
+                    formatted(userId, card.getId());
             log.warn(exMessage);
             throw new CardNotOwnedException(exMessage);
         }
         return card;
     }
 
+    /**
+     * Блокирует строки карт до конца текущей транзакции
+     *
+     * @param cardIds идентификаторы карт
+     * @return заблокированные карты по их идентификаторам
+     */
+
+    private Map<UUID, Card> lockCards(Collection<UUID> cardIds) {
+        return cardRepository.findAllByIdInForUpdate(cardIds).stream()
+                .collect(Collectors.toMap(Card::getId, Function.identity()));
+    }
+
+    /**
+     * Достаёт карту из заблокированных и обрабатывает ситуацию когда карта не найдена
+     *
+     * @param lockedCards заблокированные карты
+     * @param cardId      идентификатор карты
+     * @return карту
+     */
+
+    private Card getLockedCard(Map<UUID, Card> lockedCards, UUID cardId) {
+        Card card = lockedCards.get(cardId);
+        if (card == null) {
+            String exMessage = ExceptionMessages.CARD_NOT_FOUND.getDescription()
+                    .formatted(cardId);
+            log.warn(exMessage);
+            throw new NotFoundException(exMessage);
+        }
+        return card;
+    }
+
     /**
      * Достаёт карту и обрабатывает ситуацию когда карта не найдена
      *
@@ -257,14 +858,45 @@ public class CardServiceImpl implements CardService {
     }
 
     /**
-     * Переводит данные из бд в ResponseDto с маскированным номером карты
+     * Запоминает последние четыре цифры и слепой индекс номера карты и шифрует номер
+     *
+     * @param card новая карта с открытым номером
+     */
+    private void protectNumber(Card card) {
+        card.setLast4(MaskCardNumber.last4(card.getNumber()));
+        card.setNumberHash(cardNumberBlindIndex.of(card.getNumber()));
+        card.setNumber(cardNumberCipher.encrypt(card.getNumber()));
+    }
+
+    /**
+     * Проверяет что номера новых карт ещё не заняты.
+     * Одновременный выпуск карты с тем же номером отсекает уникальный индекс {@code number_hash}
+     *
+     * @param numberHashes слепые индексы номеров
+     * @throws CardAlreadyExistsException если хотя бы один номер занят
+     */
+    private void checkNumbersAreFree(Collection<String> numberHashes) {
+        if (cardRepository.existsByNumberHashIn(numberHashes)) {
+            String exMessage = ExceptionMessages.CARD_NUMBER_EXISTS.getDescription();
+            log.warn(exMessage);
+            throw new CardAlreadyExistsException(exMessage);
+        }
+    }
+
+    /**
+     * Переводит данные из бд в ResponseDto с маскированным номером карты.
+     * <p>
+     * Номер маскируется по сохранённым последним цифрам, расшифровка нужна только картам,
+     * до которых ещё не дошло фоновое заполнение {@code last4}
+     * </p>
      *
      * @param card Карта из бд
      * @return Данные карты с маскированными номером карты
      */
     private CardInfoResponseDto toDtoMasked(Card card) {
-        String decryptedNumber = textEncryptor.decrypt(card.getNumber());
-        String maskedNumber = MaskCardNumber.mask(decryptedNumber);
+        String maskedNumber = card.getLast4() != null
+                ? MaskCardNumber.maskLast4(card.getLast4())
+                : MaskCardNumber.mask(cardNumberCipher.decrypt(card.getNumber()));
         return  CardInfoResponseDto.builder()
                 .id(card.getId())
                 .ownerId(card.getOwnerId())
@@ -6,8 +6,8 @@ import com.example.bankcards.dto.response.UserInfoResponseDto;
 import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.NotFoundException;
-import com.example.bankcards.repository.RoleRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.RoleRegistry;
 import com.example.bankcards.service.UserService;
 import com.example.bankcards.util.ExceptionMessages;
 import com.example.bankcards.util.mapper.UserMapper;
@@ -36,7 +36,7 @@ import java.util.UUID;
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
-    private final RoleRepository roleRepository;
+    private final RoleRegistry roleRegistry;
     private final PasswordEncoder passwordEncoder;
     private final UserMapper userMapper;
 
@@ -49,7 +49,7 @@ public class UserServiceImpl implements UserService {
     @Override
     public UserInfoResponseDto createUser(UserCreateRequestDto request) {
         String encodedPassword = passwordEncoder.encode(request.password());
-        Set<Role> roles = roleRepository.findByNameIn(request.roles());
+        Set<Role> roles = roleRegistry.findByNames(request.roles());
 
         User user = User.builder()
                 .username(request.username())
@@ -77,13 +77,15 @@ public class UserServiceImpl implements UserService {
 
     /**
      * Получение всех пользователей с поддержкой пагинации.
+     * Пользователи страницы и их роли выбираются одним запросом без загрузки сущностей
      *
      * @param pageable объект пагинации (страница, размер, сортировка)
      * @return страница DTO пользователей
      */
     @Override
+    @Transactional(readOnly = true)
     public Page<UserInfoResponseDto> getAllUsers(Pageable pageable) {
-        return userRepository.findAll(pageable)
+        return userRepository.findUserInfoPage(pageable)
                 .map(userMapper::toDto);
     }
 
@@ -103,7 +105,7 @@ public class UserServiceImpl implements UserService {
         if (request.firstName() != null) user.setFirstName(request.firstName());
         if (request.lastName() != null) user.setLastName(request.lastName());
         if (request.roles() != null) {
-            user.setRoles(roleRepository.findByNameIn(request.roles()));
+            user.setRoles(roleRegistry.findByNames(request.roles()));
         }
 
         User updated = userRepository.save(user);
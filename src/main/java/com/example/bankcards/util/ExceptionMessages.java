@@ -16,14 +16,34 @@ import lombok.Getter;
 public enum ExceptionMessages {
     JWT_TOKEN_NOT_VALID("Jwt токен не валиден"),
     JWT_TOKEN_EXPIRED("Jwt токен истёк"),
+    REFRESH_TOKEN_NOT_VALID("Refresh токен не валиден"),
+    REFRESH_TOKEN_EXPIRED("Refresh токен истёк"),
+    REFRESH_TOKEN_REUSED("Refresh токен уже использован, сессия завершена, выполните вход заново"),
     LOGIN_FAILED("Неверный логин и/или пароль"),
     LOGIN_IS_TAKEN("Пользователь с таким логином уже существует"),
+    AUTH_OVERLOADED("Слишком много запросов на вход, повторите попытку позже"),
+    LOGIN_THROTTLED("Слишком много попыток входа, повторите попытку позже"),
+    RATE_LIMIT_EXCEEDED("Слишком много запросов, повторите попытку позже"),
+    AUTHENTICATION_REQUIRED("Требуется аутентификация"),
     SAME_CARD_TRANSFER("Пользователь с ID = %s пытается перевести деньги на туже карту с которой переводит"),
     INSUFFICIENT_BALANCE("Средств на карте недостаточно"),
     CARD_NOT_BELONGS_TO_YOU("Пользователь с ID = %s пытался использовать карту с ID = %s которая ему не принадлежит"),
     USER_NOT_FOUND_BY_ID("Пользователь с ID = %s не найден"),
     USER_NOT_FOUND_BY_USERNAME("Пользователь с логином = %s не найден"),
     CARD_NOT_FOUND("Карта с ID = %s не найдена"),
-    CARD_NOT_ACTIVE("Карта пользователя не активна");
+    CARD_NOT_ACTIVE("Карта пользователя не активна"),
+    TRANSFER_CONFLICT("Карты изменились во время перевода, повторите попытку"),
+    CONCURRENT_MODIFICATION("Данные были изменены другим запросом, повторите попытку"),
+    INVALID_CURSOR("Некорректный курсор страницы"),
+    INVALID_IDEMPOTENCY_KEY("Заголовок Idempotency-Key должен быть не длиннее 63 символов"),
+    IDEMPOTENCY_KEY_REUSED("Idempotency-Key уже использован для другого перевода"),
+    IMPORT_ROW_INVALID("Строка не соответствует формату импорта"),
+    IMPORT_CHUNK_NOT_SAVED("Строки %d-%d не сохранены"),
+    IMPORT_ROW_NOT_SAVED("Строка не сохранена: номер карты уже занят или данные нарушают ограничения базы"),
+    IMPORT_READ_FAILED("Не удалось прочитать файл импорта"),
+    IMPORT_INTERRUPTED("Импорт карт был прерван"),
+    EXPORT_FAILED("Не удалось записать выгрузку карт"),
+    CARD_NUMBER_EXISTS("Карта с таким номером уже существует"),
+    CARD_NOT_FOUND_BY_NUMBER("Карта с указанным номером не найдена");
     private final String description;
 }
@@ -9,6 +9,21 @@ import lombok.experimental.UtilityClass;
 public class MaskCardNumber {
     public static String mask(String number) {
         if (number == null || number.length() < 4) return number;
-        return "**** **** **** " + number.substring(number.length() - 4);
+        return maskLast4(last4(number));
+    }
+
+    /**
+     * Возвращает последние четыре цифры номера карты
+     */
+    public static String last4(String number) {
+        if (number == null || number.length() < 4) return number;
+        return number.substring(number.length() - 4);
+    }
+
+    /**
+     * Маскирует номер карты по уже сохранённым последним четырём цифрам
+     */
+    public static String maskLast4(String last4) {
+        return "**** **** **** " + last4;
     }
 }
@@ -0,0 +1,61 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Курсор для постраничного просмотра истории переводов по ключу (created_at, id)
+ * <p>
+ * Следующая страница начинается строго после последней записи предыдущей, поэтому стоимость запроса
+ * не зависит от глубины страницы и не требует подсчёта общего количества записей
+ * </p>
+ *
+ * @param createdAt время создания последней записи страницы
+ * @param id        идентификатор последней записи страницы
+ */
+public record TransactionCursor(Instant createdAt, long id) {
+
+    /**
+     * Курсор первой страницы, расположенный после любой существующей записи
+     */
+    public static final TransactionCursor FIRST_PAGE =
+            new TransactionCursor(Instant.parse("9999-12-31T23:59:59Z"), Long.MAX_VALUE);
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * Разбирает курсор из строки, полученной от клиента
+     *
+     * @param value закодированный курсор или null для первой страницы
+     * @return курсор
+     * @throws BadRequestException если курсор повреждён
+     */
+    public static TransactionCursor decode(String value) {
+        if (value == null || value.isBlank()) {
+            return FIRST_PAGE;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(SEPARATOR);
+            return new TransactionCursor(
+                    Instant.parse(decoded.substring(0, separator)),
+                    Long.parseLong(decoded.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new BadRequestException(ExceptionMessages.INVALID_CURSOR.getDescription());
+        }
+    }
+
+    /**
+     * Кодирует курсор в непрозрачную для клиента строку
+     *
+     * @return закодированный курсор
+     */
+    public String encode() {
+        String raw = createdAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
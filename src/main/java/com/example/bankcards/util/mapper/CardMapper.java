@@ -1,17 +1,28 @@
 package com.example.bankcards.util.mapper;
 
 import com.example.bankcards.dto.request.CardCreateRequestDto;
-import com.example.bankcards.dto.response.CardInfoResponseDto;
+import com.example.bankcards.dto.response.CardTransactionResponseDto;
 import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardTransaction;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 /**
- * Mapper для преобразования сущности Card в DTO CardInfoResponseDto
+ * Mapper для преобразования сущностей Card и CardTransaction в DTO.
+ * Карта отдаётся клиенту только с маскированным номером, который собирает {@code CardServiceImpl}
  */
 @Mapper(componentModel = "spring")
 public interface CardMapper {
 
-    CardInfoResponseDto toDto(Card card);
-
+    /**
+     * Переносит поля запроса в новую карту. Идентификатор, версию и производные колонки номера
+     * заполняют Hibernate и {@code CardServiceImpl}, поле запроса с таким же именем их не перезапишет
+     */
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "last4", ignore = true)
+    @Mapping(target = "numberHash", ignore = true)
+    @Mapping(target = "version", ignore = true)
     Card toCard(CardCreateRequestDto cardCreateRequestDto);
+
+    CardTransactionResponseDto toTransactionDto(CardTransaction transaction);
 }
\ No newline at end of file
@@ -3,8 +3,10 @@ package com.example.bankcards.util.mapper;
 import com.example.bankcards.dto.response.UserInfoResponseDto;
 import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.projection.UserInfoRow;
 import org.mapstruct.Mapper;
 
+import java.util.Arrays;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -22,6 +24,23 @@ public interface UserMapper {
      */
     UserInfoResponseDto toDto(User user);
 
+    /**
+     * Преобразует строку списка пользователей с ролями через запятую в UserInfoResponseDto
+     *
+     * @param row строка списка пользователей
+     * @return Dto для ответа клиенту
+     */
+    default UserInfoResponseDto toDto(UserInfoRow row) {
+        return UserInfoResponseDto.builder()
+                .username(row.username())
+                .firstName(row.firstName())
+                .lastName(row.lastName())
+                .roles(row.roles() == null
+                        ? Set.of()
+                        : Arrays.stream(row.roles().split(",")).collect(Collectors.toSet()))
+                .build();
+    }
+
     /**
      * Метод чтобы замапить роли из множества ролей в множество строк
      *
@@ -0,0 +1 @@
+CREATE INDEX idx_card_transaction_created_at_brin ON card_transaction USING BRIN (created_at);
\ No newline at end of file
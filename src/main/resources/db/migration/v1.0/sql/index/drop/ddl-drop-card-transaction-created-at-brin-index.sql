@@ -0,0 +1 @@
+DROP INDEX IF EXISTS idx_card_transaction_created_at_brin;
\ No newline at end of file
@@ -0,0 +1,192 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.BankRestApplication;
+import com.example.bankcards.dto.request.CardBatchTransferRequestDto;
+import com.example.bankcards.dto.request.CardBulkCreateRequestDto;
+import com.example.bankcards.dto.request.CardCreateRequestDto;
+import com.example.bankcards.dto.request.CardTransferRequestDto;
+import com.example.bankcards.dto.response.CardBatchTransferResponseDto;
+import com.example.bankcards.dto.response.CardInfoResponseDto;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.service.CardService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.SessionEventListener;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Пакетная запись карт: выпуск 100 карт через {@code createCards} и пакет из 100 переводов через
+ * {@code transferBatch} между 20 картами одного владельца.
+ * Перед замером печатает на одну операцию число подготовленных JDBC-запросов и вставленных/изменённых сущностей
+ * по статистике Hibernate, а также число выполненных JDBC-пакетов: с {@code hibernate.jdbc.batch_size=50}
+ * INSERT и UPDATE должны уходить пакетами по 50 строк, а не запросом на каждую строку.
+ * Нужна запущенная БД из {@code docker-compose.yml} (или переменные {@code DATABASE_*}); созданные карты
+ * и записи журнала удаляются после замера.
+ * Запускается вручную, в обычную сборку не входит:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.bankcards.benchmark.CardBatchWriteBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+public class CardBatchWriteBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+    private static final int TRANSFER_CARDS = 20;
+
+    private final UUID ownerId = UUID.randomUUID();
+
+    private ConfigurableApplicationContext context;
+    private CardService cardService;
+    private CardBatchTransferRequestDto forward;
+    private CardBatchTransferRequestDto backward;
+    private boolean reversed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(BankRestApplication.class)
+                .properties("server.port=0",
+                        "spring.jpa.properties.hibernate.generate_statistics=true",
+                        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=warn",
+                        "spring.jpa.properties.hibernate.session.events.auto=" + JdbcBatchCounter.class.getName())
+                .run();
+        cardService = context.getBean(CardService.class);
+
+        List<UUID> cardIds = cardService.createCards(cards(TRANSFER_CARDS)).stream()
+                .map(CardInfoResponseDto::id)
+                .toList();
+        forward = transfers(cardIds, false);
+        backward = transfers(cardIds, true);
+
+        Statistics statistics = context.getBean(EntityManagerFactory.class)
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+        printWrites(statistics, "createCards", this::createCards);
+        printWrites(statistics, "transferBatch", this::transferBatch);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("""
+                delete from card_transaction
+                where from_card_id in (select id from card where owner_id = ?)
+                """, ownerId);
+        jdbcTemplate.update("delete from card where owner_id = ?", ownerId);
+        context.close();
+    }
+
+    @Benchmark
+    public List<CardInfoResponseDto> createCards() {
+        return cardService.createCards(cards(BATCH_SIZE));
+    }
+
+    /**
+     * Пакеты по очереди идут в прямую и обратную сторону: каждый меняет баланс всех карт, а следующий
+     * возвращает балансы обратно
+     */
+    @Benchmark
+    public CardBatchTransferResponseDto transferBatch() {
+        CardBatchTransferRequestDto batch = reversed ? backward : forward;
+        reversed = !reversed;
+        return cardService.transferBatch(batch, ownerId);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CardBatchWriteBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+    private CardBulkCreateRequestDto cards(int count) {
+        return CardBulkCreateRequestDto.builder()
+                .cards(IntStream.range(0, count)
+                        .mapToObj(i -> CardCreateRequestDto.builder()
+                                .ownerId(ownerId)
+                                .number(String.valueOf(ThreadLocalRandom.current()
+                                        .nextLong(4_000_000_000_000_000L, 5_000_000_000_000_000L)))
+                                .status(CardStatus.ACTIVE)
+                                .expiryDate(LocalDate.now().plusYears(3))
+                                .balance(BigDecimal.valueOf(1000))
+                                .build())
+                        .toList())
+                .build();
+    }
+
+    /**
+     * Карта {@code i} переводит следующей по кругу {@code i + 1} рублей, поэтому баланс каждой карты меняется
+     */
+    private static CardBatchTransferRequestDto transfers(List<UUID> cardIds, boolean reversed) {
+        return CardBatchTransferRequestDto.builder()
+                .transfers(IntStream.range(0, BATCH_SIZE)
+                        .mapToObj(i -> {
+                            UUID from = cardIds.get(i % TRANSFER_CARDS);
+                            UUID to = cardIds.get((i + 1) % TRANSFER_CARDS);
+                            return CardTransferRequestDto.builder()
+                                    .fromCardId(reversed ? to : from)
+                                    .toCardId(reversed ? from : to)
+                                    .amount(BigDecimal.valueOf(i % TRANSFER_CARDS + 1))
+                                    .build();
+                        })
+                        .toList())
+                .build();
+    }
+
+    private static void printWrites(Statistics statistics, String operation, Runnable write) {
+        statistics.clear();
+        JdbcBatchCounter.BATCHES.set(0);
+        write.run();
+        System.out.printf("%s на %d элементов: JDBC-запросов %d, JDBC-пакетов %d, вставлено %d, изменено %d%n",
+                operation, BATCH_SIZE, statistics.getPrepareStatementCount(), JdbcBatchCounter.BATCHES.get(),
+                statistics.getEntityInsertCount(), statistics.getEntityUpdateCount());
+    }
+
+    /**
+     * Считает выполненные JDBC-пакеты, которых нет в {@link Statistics}; подключается через
+     * {@code hibernate.session.events.auto} и создаётся Hibernate для каждой сессии
+     */
+    public static class JdbcBatchCounter implements SessionEventListener {
+
+        private static final AtomicLong BATCHES = new AtomicLong();
+
+        @Override
+        public void jdbcExecuteBatchStart() {
+            BATCHES.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.security.AesGcmCardNumberCipher;
+import com.example.bankcards.security.CardKeyRing;
+import com.example.bankcards.security.EnvelopeCardKeyRing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.crypto.encrypt.Encryptors;
+import org.springframework.security.crypto.encrypt.TextEncryptor;
+
+import javax.crypto.SecretKey;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение пропускной способности шифрования номеров карт: прежний {@link Encryptors#text} против
+ * {@link AesGcmCardNumberCipher}. Запускается вручную, в обычную сборку не входит:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.bankcards.benchmark.CardNumberCipherBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class CardNumberCipherBenchmark {
+
+    private static final String SECRET = "eeM9060sDCR7bINitx2gJTKkte0Rybg1";
+    private static final String SALT = "5a1b2c3d4e6f";
+    private static final String NUMBER = "1234123412341234";
+
+    private TextEncryptor textEncryptor;
+    private AesGcmCardNumberCipher aesGcmCipher;
+    private String textEncryptorCiphertext;
+    private String aesGcmCiphertext;
+
+    @Setup
+    public void setUp() {
+        textEncryptor = Encryptors.text(SECRET, SALT);
+        aesGcmCipher = new AesGcmCardNumberCipher(
+                new FixedKeyRing(EnvelopeCardKeyRing.deriveKey(SECRET, HexFormat.of().parseHex(SALT))), textEncryptor);
+        textEncryptorCiphertext = textEncryptor.encrypt(NUMBER);
+        aesGcmCiphertext = aesGcmCipher.encrypt(NUMBER);
+    }
+
+    @Benchmark
+    public String textEncryptorEncrypt() {
+        return textEncryptor.encrypt(NUMBER);
+    }
+
+    @Benchmark
+    public String textEncryptorDecrypt() {
+        return textEncryptor.decrypt(textEncryptorCiphertext);
+    }
+
+    @Benchmark
+    public String aesGcmEncrypt() {
+        return aesGcmCipher.encrypt(NUMBER);
+    }
+
+    @Benchmark
+    public String aesGcmDecrypt() {
+        return aesGcmCipher.decrypt(aesGcmCiphertext);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CardNumberCipherBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+    /**
+     * Один ключ в памяти, без обращений к базе
+     */
+    private record FixedKeyRing(SecretKey key) implements CardKeyRing {
+
+        @Override
+        public int activeVersion() {
+            return EnvelopeCardKeyRing.INITIAL_VERSION;
+        }
+
+        @Override
+        public SecretKey key(int version) {
+            return key;
+        }
+
+        @Override
+        public int rotate() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
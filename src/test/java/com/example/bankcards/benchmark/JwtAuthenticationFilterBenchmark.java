@@ -0,0 +1,119 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.security.AuthenticatedUser;
+import com.example.bankcards.security.JwtAuthenticationFilter;
+import com.example.bankcards.security.JwtSigningKeys;
+import com.example.bankcards.security.JwtTokenProvider;
+import com.example.bankcards.util.UserUtil;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость аутентификации запроса по JWT: прежние три разбора токена с новым парсером на каждый,
+ * один разбор заранее созданным парсером, повторный токен из кэша проверенных токенов
+ * и полный проход {@link JwtAuthenticationFilter} с кэшем.
+ * Запускается вручную, в обычную сборку не входит:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.bankcards.benchmark.JwtAuthenticationFilterBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class JwtAuthenticationFilterBenchmark {
+
+    private static final String SECRET = "eeM9060sDCR7bINitx2gJTKkte0RybgH";
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> {
+    };
+
+    private Key key;
+    private JwtTokenProvider jwtTokenProvider;
+    private JwtTokenProvider cachingJwtTokenProvider;
+    private JwtAuthenticationFilter filter;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        key = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        JwtSigningKeys signingKeys = new JwtSigningKeys("HS256", SECRET, "", "", "");
+        jwtTokenProvider = new JwtTokenProvider(signingKeys, 900_000, Caffeine.newBuilder().maximumSize(0).build());
+        cachingJwtTokenProvider = new JwtTokenProvider(signingKeys, 900_000, Caffeine.newBuilder().build());
+        filter = new JwtAuthenticationFilter(cachingJwtTokenProvider);
+        token = jwtTokenProvider.generateToken(UserUtil.getValidUser);
+    }
+
+    /**
+     * Прежний путь фильтра: проверка, subject и роли, каждый раз с новым парсером
+     */
+    @Benchmark
+    public Object threeParsesWithNewParser() {
+        Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
+        String userId = legacyParse().getSubject();
+        List<?> roles = legacyParse().get("roles", List.class);
+        return new Object[]{userId, roles};
+    }
+
+    @Benchmark
+    public AuthenticatedUser singleParse() {
+        return jwtTokenProvider.parseToken(token);
+    }
+
+    @Benchmark
+    public AuthenticatedUser cachedParse() {
+        return cachingJwtTokenProvider.parseToken(token);
+    }
+
+    @Benchmark
+    public Object filter() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/user/cards");
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), NO_OP_CHAIN);
+        Object authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtAuthenticationFilterBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+    private Claims legacyParse() {
+        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
+    }
+}
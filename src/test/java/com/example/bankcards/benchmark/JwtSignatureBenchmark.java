@@ -0,0 +1,103 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.security.AuthenticatedUser;
+import com.example.bankcards.security.JwtSigningKeys;
+import com.example.bankcards.security.JwtTokenProvider;
+import com.example.bankcards.util.UserUtil;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность проверки подписи JWT без кэша проверенных токенов: общий секрет HS256
+ * и открытый ключ ES256. Ed25519 в jjwt 0.11 не поддерживается, поэтому для сравнения
+ * проверка подписи Ed25519 средствами JDK над той же строкой заголовка и тела.
+ * Запускается вручную, в обычную сборку не входит:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.bankcards.benchmark.JwtSignatureBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class JwtSignatureBenchmark {
+
+    private static final String SECRET = "eeM9060sDCR7bINitx2gJTKkte0RybgH";
+
+    private JwtTokenProvider hs256Provider;
+    private JwtTokenProvider es256Provider;
+    private String hs256Token;
+    private String es256Token;
+
+    private KeyPair ed25519Keys;
+    private byte[] ed25519Content;
+    private byte[] ed25519Signature;
+
+    @Setup
+    public void setUp() throws GeneralSecurityException {
+        hs256Provider = uncachedProvider(new JwtSigningKeys("HS256", SECRET, "", "", ""));
+        es256Provider = uncachedProvider(new JwtSigningKeys("ES256", SECRET, "", "", ""));
+        hs256Token = hs256Provider.generateToken(UserUtil.getValidUser);
+        es256Token = es256Provider.generateToken(UserUtil.getValidUser);
+
+        ed25519Keys = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        ed25519Content = es256Token.substring(0, es256Token.lastIndexOf('.')).getBytes(StandardCharsets.US_ASCII);
+        Signature signer = Signature.getInstance("Ed25519");
+        signer.initSign(ed25519Keys.getPrivate());
+        signer.update(ed25519Content);
+        ed25519Signature = signer.sign();
+    }
+
+    @Benchmark
+    public AuthenticatedUser verifyHs256() {
+        return hs256Provider.parseToken(hs256Token);
+    }
+
+    @Benchmark
+    public AuthenticatedUser verifyEs256() {
+        return es256Provider.parseToken(es256Token);
+    }
+
+    @Benchmark
+    public boolean verifyEd25519Signature() throws GeneralSecurityException {
+        Signature verifier = Signature.getInstance("Ed25519");
+        verifier.initVerify(ed25519Keys.getPublic());
+        verifier.update(ed25519Content);
+        return verifier.verify(ed25519Signature);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtSignatureBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+    private static JwtTokenProvider uncachedProvider(JwtSigningKeys signingKeys) {
+        return new JwtTokenProvider(signingKeys, 900_000, Caffeine.newBuilder().maximumSize(0).build());
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.BankRestApplication;
+import com.example.bankcards.dto.response.UserInfoResponseDto;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.RoleName;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.RoleRegistry;
+import com.example.bankcards.service.UserService;
+import com.example.bankcards.util.mapper.UserMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Страница из 100 пользователей для {@code GET /api/admin/users}: прежняя загрузка сущностей с отдельным
+ * запросом ролей на каждого пользователя (1 + N) против проекции с агрегированными ролями (1 запрос).
+ * Перед замером печатает число SQL-запросов на одну страницу по статистике Hibernate; в обоих вариантах
+ * к нему добавляется запрос количества для {@link Page}.
+ * Нужна запущенная БД из {@code docker-compose.yml} (или переменные {@code DATABASE_*}); если пользователей
+ * меньше 100, недостающие создаются с логином {@code benchmark-user-N}.
+ * Запускается вручную, в обычную сборку не входит:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.bankcards.benchmark.UserListQueryBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+public class UserListQueryBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+    private static final Pageable PAGE = PageRequest.of(0, PAGE_SIZE, Sort.by("username"));
+
+    private ConfigurableApplicationContext context;
+    private UserRepository userRepository;
+    private UserService userService;
+    private UserMapper userMapper;
+    private TransactionTemplate readOnlyTransaction;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(BankRestApplication.class)
+                .properties("server.port=0", "spring.jpa.properties.hibernate.generate_statistics=true")
+                .run();
+        userRepository = context.getBean(UserRepository.class);
+        userService = context.getBean(UserService.class);
+        userMapper = context.getBean(UserMapper.class);
+        readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTransaction.setReadOnly(true);
+
+        seedUsers(context.getBean(RoleRegistry.class));
+
+        Statistics statistics = context.getBean(EntityManagerFactory.class)
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+        System.out.printf("SQL-запросов на страницу из %d: сущности %d, проекция %d%n", PAGE_SIZE,
+                countStatements(statistics, this::entityPerRow),
+                countStatements(statistics, this::projection));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Прежний путь: {@code findAll(pageable)} и отображение сущностей, роли каждого пользователя
+     * загружаются отдельным запросом
+     */
+    @Benchmark
+    public Page<UserInfoResponseDto> entityPerRow() {
+        return readOnlyTransaction.execute(status -> userRepository.findAll(PAGE).map(userMapper::toDto));
+    }
+
+    @Benchmark
+    public Page<UserInfoResponseDto> projection() {
+        return userService.getAllUsers(PAGE);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(UserListQueryBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+    private void seedUsers(RoleRegistry roleRegistry) {
+        long missing = PAGE_SIZE - userRepository.count();
+        userRepository.saveAll(IntStream.range(0, (int) Math.max(0, missing))
+                .mapToObj(i -> User.builder()
+                        .username("benchmark-user-" + i)
+                        .firstName("Benchmark")
+                        .lastName("User " + i)
+                        .password("{noop}benchmark")
+                        .roles(i % 10 == 0
+                                ? Set.of(roleRegistry.get(RoleName.USER), roleRegistry.get(RoleName.ADMIN))
+                                : Set.of(roleRegistry.get(RoleName.USER)))
+                        .build())
+                .toList());
+    }
+
+    private static long countStatements(Statistics statistics, Supplier<Page<UserInfoResponseDto>> query) {
+        statistics.clear();
+        query.get();
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -1,26 +1,44 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.response.JwkDto;
+import com.example.bankcards.dto.response.JwksResponseDto;
+import com.example.bankcards.exception.InvalidTokenException;
 import com.example.bankcards.exception.LoginAlreadyExistsException;
+import com.example.bankcards.exception.TooManyRequestsException;
 import com.example.bankcards.security.JwtAuthenticationFilter;
+import com.example.bankcards.security.LoginAttemptLimiter;
+import com.example.bankcards.security.PasswordHashingDispatcher;
+import com.example.bankcards.security.RateLimitFilter;
 import com.example.bankcards.service.AuthService;
 import com.example.bankcards.util.AuthUtil;
 import com.example.bankcards.util.ConstantUtil;
 import com.example.bankcards.util.ExceptionMessages;
 import com.example.bankcards.util.RegisterUtil;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(AuthController.class)
@@ -39,16 +57,91 @@ class AuthControllerTest {
     @MockitoBean
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    @MockitoBean
+    private RateLimitFilter rateLimitFilter;
+
+    @MockitoBean
+    private PasswordHashingDispatcher passwordHashingDispatcher;
+
+    @MockitoBean
+    private LoginAttemptLimiter loginAttemptLimiter;
+
+    @BeforeEach
+    void setUp() {
+        Mockito.when(passwordHashingDispatcher.submit(any()))
+                .thenAnswer(invocation -> CompletableFuture.supplyAsync(invocation.<Supplier<?>>getArgument(0),
+                        Runnable::run));
+    }
+
     @Test
     void login_success() throws Exception {
         Mockito.when(authService.login(any()))
                 .thenReturn(AuthUtil.getValidAuthResponseDto());
 
-        mockMvc.perform(post(ConstantUtil.LOGIN_URL)
+        MvcResult result = mockMvc.perform(post(ConstantUtil.LOGIN_URL)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(AuthUtil.getValidAuthRequestDto())))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.token").value(ConstantUtil.VALID_JWT_TOKEN));
+        Mockito.verify(loginAttemptLimiter).reset(ConstantUtil.VALID_USERNAME);
+    }
+
+    @Test
+    void login_throttledBeforePasswordCheck() throws Exception {
+        Mockito.doThrow(new TooManyRequestsException(ExceptionMessages.LOGIN_THROTTLED.getDescription(), 42))
+                .when(loginAttemptLimiter).acquire(any(), any());
+
+        mockMvc.perform(post(ConstantUtil.LOGIN_URL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(AuthUtil.getValidAuthRequestDto())))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "42"))
+                .andExpect(jsonPath("$.errorMessage").value(ExceptionMessages.LOGIN_THROTTLED.getDescription()));
+        Mockito.verify(passwordHashingDispatcher, Mockito.never()).submit(any());
+        Mockito.verify(authService, Mockito.never()).login(any());
+    }
+
+    @Test
+    void login_passwordHashingPoolSaturated() throws Exception {
+        Mockito.doThrow(new TooManyRequestsException(ExceptionMessages.AUTH_OVERLOADED.getDescription()))
+                .when(passwordHashingDispatcher).submit(any());
+
+        mockMvc.perform(post(ConstantUtil.LOGIN_URL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(AuthUtil.getValidAuthRequestDto())))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER))
+                .andExpect(jsonPath("$.errorMessage").value(ExceptionMessages.AUTH_OVERLOADED.getDescription()));
+        Mockito.verify(authService, Mockito.never()).login(any());
+    }
+
+    @Test
+    void refresh_success() throws Exception {
+        Mockito.when(authService.refresh(any()))
+                .thenReturn(AuthUtil.getValidAuthResponseDto());
+
+        mockMvc.perform(post(ConstantUtil.REFRESH_URL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(AuthUtil.getValidRefreshTokenRequestDto())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").value(ConstantUtil.VALID_JWT_TOKEN))
+                .andExpect(jsonPath("$.refreshToken").value(ConstantUtil.VALID_REFRESH_TOKEN));
+    }
+
+    @Test
+    void refresh_reusedToken() throws Exception {
+        Mockito.when(authService.refresh(any()))
+                .thenThrow(new InvalidTokenException(ExceptionMessages.REFRESH_TOKEN_REUSED.getDescription()));
+
+        mockMvc.perform(post(ConstantUtil.REFRESH_URL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(AuthUtil.getValidRefreshTokenRequestDto())))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.errorMessage").value(ExceptionMessages.REFRESH_TOKEN_REUSED.getDescription()));
     }
 
     @Test
@@ -56,9 +149,13 @@ class AuthControllerTest {
         Mockito.when(authService.register(any()))
                 .thenReturn("Пользователь с логином = " + ConstantUtil.VALID_USERNAME + " успешно зарегистрирован");
 
-        mockMvc.perform(post(ConstantUtil.REGISTER_URL)
+        MvcResult result = mockMvc.perform(post(ConstantUtil.REGISTER_URL)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(RegisterUtil.getValidRegisterRequestDto())))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isCreated())
                 .andExpect(content().string("Пользователь с логином = " + ConstantUtil.VALID_USERNAME + " успешно зарегистрирован"));
     }
@@ -68,10 +165,25 @@ class AuthControllerTest {
         Mockito.when(authService.register(any()))
                 .thenThrow(new LoginAlreadyExistsException(ExceptionMessages.LOGIN_IS_TAKEN.getDescription()));
 
-        mockMvc.perform(post(ConstantUtil.REGISTER_URL)
+        MvcResult result = mockMvc.perform(post(ConstantUtil.REGISTER_URL)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(RegisterUtil.getValidRegisterRequestDto())))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.errorMessage").value(ExceptionMessages.LOGIN_IS_TAKEN.getDescription()));
     }
+
+    @Test
+    void getJwks_returnsPublicKeys() throws Exception {
+        Mockito.when(authService.getJwks())
+                .thenReturn(new JwksResponseDto(List.of(JwkDto.builder().kty("EC").kid("key-1").alg("ES256").build())));
+
+        mockMvc.perform(get("/auth/jwks.json"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.keys[0].kid").value("key-1"))
+                .andExpect(jsonPath("$.keys[0].alg").value("ES256"));
+    }
 }
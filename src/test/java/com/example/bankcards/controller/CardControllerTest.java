@@ -1,11 +1,26 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.request.CardBatchTransferRequestDto;
+import com.example.bankcards.dto.request.CardBulkCreateRequestDto;
 import com.example.bankcards.dto.request.CardCreateRequestDto;
+import com.example.bankcards.dto.request.CardNumberRequestDto;
 import com.example.bankcards.dto.request.CardTransferRequestDto;
+import com.example.bankcards.dto.response.CardBatchTransferResponseDto;
+import com.example.bankcards.dto.response.CardImportErrorDto;
+import com.example.bankcards.dto.response.CardImportResponseDto;
 import com.example.bankcards.dto.response.CardInfoResponseDto;
+import com.example.bankcards.dto.response.CardKeyRotationResponseDto;
+import com.example.bankcards.dto.response.CardTransactionPageResponseDto;
+import com.example.bankcards.dto.response.CardTransactionResponseDto;
+import com.example.bankcards.dto.response.CardTransferResultDto;
+import com.example.bankcards.entity.enums.CardImportFormat;
 import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.security.JwtAuthenticationFilter;
+import com.example.bankcards.security.RateLimitFilter;
+import com.example.bankcards.service.CardImportService;
+import com.example.bankcards.service.CardKeyService;
 import com.example.bankcards.service.CardService;
+import com.example.bankcards.util.AuthUtil;
 import com.example.bankcards.util.CardUtil;
 import com.example.bankcards.util.ConstantUtil;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -21,8 +36,9 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
-import java.security.Principal;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.UUID;
 
@@ -49,9 +65,18 @@ class CardControllerTest {
     @MockitoBean
     private CardService cardService;
 
+    @MockitoBean
+    private CardImportService cardImportService;
+
+    @MockitoBean
+    private CardKeyService cardKeyService;
+
     @MockitoBean
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    @MockitoBean
+    private RateLimitFilter rateLimitFilter;
+
     /* ======================================================
                               ADMIN
          ====================================================== */
@@ -72,6 +97,42 @@ class CardControllerTest {
                 .andExpect(jsonPath("$.balance").value(300));
     }
 
+    @Test
+    void createCards_ShouldReturn201() throws Exception {
+        CardBulkCreateRequestDto requestDto = CardBulkCreateRequestDto.builder()
+                .cards(List.of(CardUtil.getValidCardCreateRequestDto(), CardUtil.getValidCardCreateRequestDto()))
+                .build();
+
+        Mockito.when(cardService.createCards(any(CardBulkCreateRequestDto.class)))
+                .thenReturn(List.of(CardUtil.getValidCardInfoResponseDto(), CardUtil.getSecondValidCardInfoResponseDto()));
+
+        mockMvc.perform(post("/api/admin/cards:bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDto)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].id").value(ConstantUtil.VALID_CARD_ID_2.toString()));
+    }
+
+    @Test
+    void importCards_ShouldPassNdjsonFormatAndReturn200() throws Exception {
+        CardImportResponseDto responseDto = CardImportResponseDto.builder()
+                .imported(1)
+                .failed(1)
+                .errors(List.of(new CardImportErrorDto(2, "Строка не соответствует формату импорта")))
+                .build();
+
+        Mockito.when(cardImportService.importCards(any(), eq(CardImportFormat.NDJSON)))
+                .thenReturn(responseDto);
+
+        mockMvc.perform(post("/api/admin/cards:import")
+                        .contentType(CardImportFormat.NDJSON_VALUE)
+                        .content(objectMapper.writeValueAsString(CardUtil.getValidCardCreateRequestDto()) + "\n{}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.errors[0].line").value(2));
+    }
+
     @Test
     void getAllCards_ShouldReturn200AndPage() throws Exception {
         CardInfoResponseDto card1 = CardUtil.getValidCardInfoResponseDto();
@@ -92,6 +153,40 @@ class CardControllerTest {
                 .andExpect(jsonPath("$.content[1].id").value(ConstantUtil.VALID_CARD_ID_2.toString()));
     }
 
+    @Test
+    void exportCards_ShouldStreamNdjson() throws Exception {
+        Mockito.doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(0).write("{}\n{}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(cardService).exportCards(any(OutputStream.class));
+
+        mockMvc.perform(get("/api/admin/cards:export"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{}\n{}\n"));
+    }
+
+    @Test
+    void rotateCardKey_ShouldReturn202() throws Exception {
+        Mockito.when(cardKeyService.rotateKey()).thenReturn(new CardKeyRotationResponseDto(2));
+
+        mockMvc.perform(post("/api/admin/cards:rotate-key"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.keyVersion").value(2));
+    }
+
+    @Test
+    void findCardByNumber_ShouldReturn200() throws Exception {
+        Mockito.when(cardService.findByNumber(ConstantUtil.CARD_NUMBER_1))
+                .thenReturn(CardUtil.getValidCardInfoResponseDto());
+
+        mockMvc.perform(post("/api/admin/cards:search")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CardNumberRequestDto(ConstantUtil.CARD_NUMBER_1))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.number").value(ConstantUtil.MASKED_CARD_NUMBER_1));
+    }
+
     @Test
     void changeCardStatus_ShouldReturn200() throws Exception {
         UUID cardId = ConstantUtil.VALID_CARD_ID_1;
@@ -128,12 +223,10 @@ class CardControllerTest {
         Mockito.when(cardService.getUserCards(eq(ConstantUtil.VALID_USER_ID_1), any(Pageable.class)))
                 .thenReturn(new PageImpl<>(List.of(card)));
 
-        Principal mockPrincipal = () -> ConstantUtil.VALID_USER_ID_1.toString();
-
         mockMvc.perform(get("/api/user/cards")
                         .param("page", "0")
                         .param("size", "1")
-                        .principal(mockPrincipal))
+                        .principal(AuthUtil.getValidUserAuthentication()))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.content[0].id")
                         .value(ConstantUtil.VALID_CARD_ID_1.toString()));
@@ -146,11 +239,9 @@ class CardControllerTest {
                         ConstantUtil.VALID_USER_ID_1))
                 .thenReturn("Карта была заблокирована");
 
-        Principal mockPrincipal = () -> ConstantUtil.VALID_USER_ID_1.toString();
-
         mockMvc.perform(patch("/api/user/cards/{cardId}/block",
                         ConstantUtil.VALID_CARD_ID_1)
-                        .principal(mockPrincipal))
+                        .principal(AuthUtil.getValidUserAuthentication()))
                 .andExpect(status().isOk())
                 .andExpect(content().string("Карта была заблокирована"));
     }
@@ -159,16 +250,73 @@ class CardControllerTest {
     void transfer_ShouldReturn200() throws Exception {
         CardTransferRequestDto requestDto = CardUtil.getValidTransferRequestDto();
 
-        Mockito.when(cardService.transfer(any(CardTransferRequestDto.class)))
+        Mockito.when(cardService.transfer(any(CardTransferRequestDto.class), eq(ConstantUtil.VALID_USER_ID_1),
+                        ArgumentMatchers.isNull()))
+                .thenReturn("Перевод прошёл успешно");
+
+        mockMvc.perform(post("/api/user/cards/transfer")
+                        .principal(AuthUtil.getValidUserAuthentication())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDto)))
+                .andExpect(status().isOk())
+                .andExpect(content().string("Перевод прошёл успешно"));
+    }
+
+    @Test
+    void transfer_WithIdempotencyKey_ShouldPassKeyToService() throws Exception {
+        CardTransferRequestDto requestDto = CardUtil.getValidTransferRequestDto();
+
+        Mockito.when(cardService.transfer(any(CardTransferRequestDto.class), eq(ConstantUtil.VALID_USER_ID_1),
+                        eq("retry-1")))
                 .thenReturn("Перевод прошёл успешно");
 
         mockMvc.perform(post("/api/user/cards/transfer")
+                        .principal(AuthUtil.getValidUserAuthentication())
+                        .header("Idempotency-Key", "retry-1")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(requestDto)))
                 .andExpect(status().isOk())
                 .andExpect(content().string("Перевод прошёл успешно"));
     }
 
+    @Test
+    void transferBatch_ShouldReturn200() throws Exception {
+        CardBatchTransferRequestDto requestDto = CardBatchTransferRequestDto.builder()
+                .transfers(List.of(CardUtil.getValidTransferRequestDto()))
+                .build();
+
+        Mockito.when(cardService.transferBatch(any(CardBatchTransferRequestDto.class), eq(ConstantUtil.VALID_USER_ID_1)))
+                .thenReturn(CardBatchTransferResponseDto.builder()
+                        .succeeded(1)
+                        .results(List.of(CardTransferResultDto.builder()
+                                .index(0)
+                                .success(true)
+                                .message("Перевод прошёл успешно")
+                                .build()))
+                        .build());
+
+        mockMvc.perform(post("/api/user/cards/transfers:batch")
+                        .principal(AuthUtil.getValidUserAuthentication())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDto)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded").value(1))
+                .andExpect(jsonPath("$.results[0].success").value(true));
+    }
+
+    @Test
+    void transferBatch_EmptyBatch_ShouldReturn400() throws Exception {
+        CardBatchTransferRequestDto requestDto = CardBatchTransferRequestDto.builder()
+                .transfers(List.of())
+                .build();
+
+        mockMvc.perform(post("/api/user/cards/transfers:batch")
+                        .principal(AuthUtil.getValidUserAuthentication())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDto)))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void getBalance_ShouldReturn200() throws Exception {
         Mockito.when(cardService.getCardBalance(
@@ -176,12 +324,47 @@ class CardControllerTest {
                         ConstantUtil.VALID_USER_ID_1))
                 .thenReturn(BigDecimal.valueOf(300));
 
-        Principal mockPrincipal = () -> ConstantUtil.VALID_USER_ID_1.toString();
-
         mockMvc.perform(get("/api/user/cards/{cardId}/balance",
                         ConstantUtil.VALID_CARD_ID_1)
-                        .principal(mockPrincipal))
+                        .principal(AuthUtil.getValidUserAuthentication()))
                 .andExpect(status().isOk())
                 .andExpect(content().string("300"));
     }
+
+    @Test
+    void getBalance_WithoutAuthenticatedUser_ShouldReturn401() throws Exception {
+        mockMvc.perform(get("/api/user/cards/{cardId}/balance",
+                        ConstantUtil.VALID_CARD_ID_1))
+                .andExpect(status().isUnauthorized());
+
+        Mockito.verifyNoInteractions(cardService);
+    }
+
+    @Test
+    void getTransactions_ShouldReturn200() throws Exception {
+        CardTransactionPageResponseDto page = CardTransactionPageResponseDto.builder()
+                .content(List.of(CardTransactionResponseDto.builder()
+                        .id(1L)
+                        .fromCardId(ConstantUtil.VALID_CARD_ID_1)
+                        .toCardId(ConstantUtil.VALID_CARD_ID_2)
+                        .amount(BigDecimal.valueOf(100))
+                        .build()))
+                .nextCursor("next")
+                .build();
+        Mockito.when(cardService.getCardTransactions(
+                        ConstantUtil.VALID_CARD_ID_1,
+                        ConstantUtil.VALID_USER_ID_1,
+                        "cursor",
+                        10))
+                .thenReturn(page);
+
+        mockMvc.perform(get("/api/user/cards/{cardId}/transactions", ConstantUtil.VALID_CARD_ID_1)
+                        .param("cursor", "cursor")
+                        .param("size", "10")
+                        .principal(AuthUtil.getValidUserAuthentication()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(1))
+                .andExpect(jsonPath("$.content[0].amount").value(100))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
 }
@@ -5,6 +5,7 @@ import com.example.bankcards.dto.request.UserUpdateRequestDto;
 import com.example.bankcards.dto.response.UserInfoResponseDto;
 import com.example.bankcards.exception.NotFoundException;
 import com.example.bankcards.security.JwtAuthenticationFilter;
+import com.example.bankcards.security.RateLimitFilter;
 import com.example.bankcards.service.UserService;
 import com.example.bankcards.util.ConstantUtil;
 import com.example.bankcards.util.ExceptionMessages;
@@ -48,6 +49,9 @@ class UserControllerTest {
     @MockitoBean
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    @MockitoBean
+    private RateLimitFilter rateLimitFilter;
+
     @Test
     void createUser_ShouldReturn201AndFullUser() throws Exception {
         UserCreateRequestDto dto = UserUtil.getValidUserCreateDto();
@@ -0,0 +1,75 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.util.ConstantUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.encrypt.Encryptors;
+import org.springframework.security.crypto.encrypt.TextEncryptor;
+
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AesGcmCardNumberCipherTest {
+
+    private static final String SECRET = "eeM9060sDCR7bINitx2gJTKkte0Rybg1";
+    private static final String SALT = "5a1b2c3d4e6f";
+
+    private final TextEncryptor legacyEncryptor = Encryptors.text(SECRET, SALT);
+    private final CardKeyRing keyRing = mock(CardKeyRing.class);
+    private final AesGcmCardNumberCipher cipher = new AesGcmCardNumberCipher(keyRing, legacyEncryptor);
+
+    @BeforeEach
+    void setUp() {
+        when(keyRing.activeVersion()).thenReturn(1);
+        when(keyRing.key(1)).thenReturn(EnvelopeCardKeyRing.deriveKey(SECRET, HexFormat.of().parseHex(SALT)));
+    }
+
+    @Test
+    void encrypt_roundTripsWithRandomIv() {
+        String first = cipher.encrypt(ConstantUtil.CARD_NUMBER_1);
+        String second = cipher.encrypt(ConstantUtil.CARD_NUMBER_1);
+
+        assertTrue(first.startsWith("g1:"));
+        assertNotEquals(first, second);
+        assertTrue(first.length() < 64);
+        assertEquals(ConstantUtil.CARD_NUMBER_1, cipher.decrypt(first));
+        assertEquals(ConstantUtil.CARD_NUMBER_1, cipher.decrypt(second));
+    }
+
+    @Test
+    void encrypt_usesActiveKeyVersionAndDecryptsOlderVersions() {
+        String old = cipher.encrypt(ConstantUtil.CARD_NUMBER_1);
+        when(keyRing.activeVersion()).thenReturn(2);
+        when(keyRing.key(2)).thenReturn(EnvelopeCardKeyRing.deriveKey("another-secret", HexFormat.of().parseHex(SALT)));
+
+        String current = cipher.encrypt(ConstantUtil.CARD_NUMBER_1);
+
+        assertEquals("g2:", cipher.currentPrefix());
+        assertTrue(current.startsWith("g2:"));
+        assertEquals(ConstantUtil.CARD_NUMBER_1, cipher.decrypt(old));
+        assertEquals(ConstantUtil.CARD_NUMBER_1, cipher.decrypt(current));
+    }
+
+    @Test
+    void decrypt_readsLegacyTextEncryptorCiphertext() {
+        String legacy = legacyEncryptor.encrypt(ConstantUtil.CARD_NUMBER_1);
+
+        assertEquals(ConstantUtil.CARD_NUMBER_1, cipher.decrypt(legacy));
+    }
+
+    @Test
+    void decrypt_rejectsTamperedCiphertext() {
+        String ciphertext = cipher.encrypt(ConstantUtil.CARD_NUMBER_1);
+        int position = ciphertext.length() - 10;
+        char replacement = ciphertext.charAt(position) == 'A' ? 'Q' : 'A';
+        String tampered = ciphertext.substring(0, position) + replacement + ciphertext.substring(position + 1);
+
+        assertThrows(IllegalStateException.class, () -> cipher.decrypt(tampered));
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.bankcards.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EnvelopeCardKeyRingTest {
+
+    private static final String SECRET = "eeM9060sDCR7bINitx2gJTKkte0Rybg1";
+    private static final String NEW_SECRET = "Xq3Lr8Tb1Zc6Wn0Ys5Kd9Mf2Hg7Ja4Pv";
+    private static final String SALT = "5a1b2c3d4e6f";
+
+    /**
+     * Содержимое таблицы card_data_key: версия и зашифрованный ключ
+     */
+    private final Map<Integer, String> table = new TreeMap<>();
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class))).thenAnswer(invocation -> {
+            RowMapper<?> mapper = invocation.getArgument(1);
+            List<Object> rows = new ArrayList<>();
+            for (Map.Entry<Integer, String> row : table.entrySet()) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getInt("version")).thenReturn(row.getKey());
+                when(rs.getString("wrapped_key")).thenReturn(row.getValue());
+                rows.add(mapper.mapRow(rs, rows.size()));
+            }
+            return rows;
+        });
+        lenient().when(jdbcTemplate.update(ArgumentMatchers.startsWith("insert"), anyInt(), anyString()))
+                .thenAnswer(invocation -> table.putIfAbsent(invocation.getArgument(1), invocation.getArgument(2)) == null
+                        ? 1 : 0);
+        lenient().when(jdbcTemplate.update(ArgumentMatchers.startsWith("update"), any(), any(), any()))
+                .thenAnswer(invocation -> table.replace(invocation.getArgument(2), invocation.getArgument(3),
+                        invocation.getArgument(1)) ? 1 : 0);
+    }
+
+    @Test
+    void firstLoad_storesInitialKeyDerivedFromSecret() {
+        EnvelopeCardKeyRing keyRing = keyRing(SECRET, "");
+
+        assertEquals(EnvelopeCardKeyRing.INITIAL_VERSION, keyRing.activeVersion());
+        assertEquals(EnvelopeCardKeyRing.deriveKey(SECRET, HexFormat.of().parseHex(SALT)),
+                keyRing.key(EnvelopeCardKeyRing.INITIAL_VERSION));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    void rotate_addsNewVersionVisibleToOtherInstances() {
+        EnvelopeCardKeyRing keyRing = keyRing(SECRET, "");
+        EnvelopeCardKeyRing otherInstance = keyRing(SECRET, "");
+        otherInstance.activeVersion();
+
+        int version = keyRing.rotate();
+
+        assertEquals(2, version);
+        assertEquals(2, keyRing.activeVersion());
+        assertNotEquals(keyRing.key(1), keyRing.key(2));
+        assertEquals(keyRing.key(2), otherInstance.key(2));
+        assertThrows(IllegalStateException.class, () -> keyRing.key(3));
+    }
+
+    @Test
+    void masterSecretChange_rewrapsStoredKeysWithoutChangingThem() {
+        EnvelopeCardKeyRing oldSecret = keyRing(SECRET, "");
+        int version = oldSecret.rotate();
+        String wrappedWithOldSecret = table.get(version);
+
+        EnvelopeCardKeyRing newSecret = keyRing(NEW_SECRET, SECRET);
+
+        assertEquals(oldSecret.key(version), newSecret.key(version));
+        assertEquals(oldSecret.key(EnvelopeCardKeyRing.INITIAL_VERSION),
+                newSecret.key(EnvelopeCardKeyRing.INITIAL_VERSION));
+        assertNotEquals(wrappedWithOldSecret, table.get(version));
+        assertEquals(oldSecret.key(version), keyRing(NEW_SECRET, "").key(version));
+        assertThrows(IllegalStateException.class, () -> keyRing(SECRET, "").activeVersion());
+    }
+
+    @Test
+    void firstLoad_failsClearlyWhenInitialKeyIsNotStored() {
+        doReturn(0).when(jdbcTemplate).update(ArgumentMatchers.startsWith("insert"), anyInt(), anyString());
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> keyRing(SECRET, "").activeVersion());
+
+        assertEquals("В таблице card_data_key нет ключей шифрования номеров карт", e.getMessage());
+    }
+
+    private EnvelopeCardKeyRing keyRing(String secret, String previousSecret) {
+        return new EnvelopeCardKeyRing(jdbcTemplate, secret, SALT, previousSecret, Duration.ofMinutes(1));
+    }
+}
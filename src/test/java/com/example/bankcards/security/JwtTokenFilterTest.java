@@ -2,18 +2,27 @@ package com.example.bankcards.security;
 
 import com.example.bankcards.config.SecurityConfig;
 import com.example.bankcards.controller.UserController;
+import com.example.bankcards.entity.enums.RoleName;
 import com.example.bankcards.service.UserService;
 import com.example.bankcards.util.ConstantUtil;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.FilterType;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.crypto.encrypt.TextEncryptor;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -38,6 +47,20 @@ public class JwtTokenFilterTest {
     @MockitoBean
     private TextEncryptor textEncryptor;
 
+    @MockitoBean
+    private CardKeyRing cardKeyRing;
+
+    @MockitoBean
+    private RateLimitFilter rateLimitFilter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        doAnswer(invocation -> {
+            invocation.<FilterChain>getArgument(2).doFilter(invocation.getArgument(0), invocation.getArgument(1));
+            return null;
+        }).when(rateLimitFilter).doFilter(any(), any(), any());
+    }
+
     @Test
     @WithMockUser(roles = {"USER"})
     void getAdminEndpoint_WhenUser_ShouldReturn403() throws Exception {
@@ -51,4 +74,14 @@ public class JwtTokenFilterTest {
         mockMvc.perform(get(ConstantUtil.ADMIN_USERS_CONTROLLER_URL))
                 .andExpect(status().isOk());
     }
+
+    @Test
+    void getAdminEndpoint_WhenTokenHasAdminRole_ShouldReturn200() throws Exception {
+        when(jwtTokenProvider.parseToken(ConstantUtil.VALID_JWT_TOKEN))
+                .thenReturn(new AuthenticatedUser(ConstantUtil.VALID_USER_ID_1, Set.of(RoleName.ADMIN)));
+
+        mockMvc.perform(get(ConstantUtil.ADMIN_USERS_CONTROLLER_URL)
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + ConstantUtil.VALID_JWT_TOKEN))
+                .andExpect(status().isOk());
+    }
 }
@@ -0,0 +1,154 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.dto.response.JwkDto;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.RoleName;
+import com.example.bankcards.exception.ExpiredTokenException;
+import com.example.bankcards.exception.InvalidTokenException;
+import com.example.bankcards.util.ConstantUtil;
+import com.example.bankcards.util.RoleUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtTokenProviderTest {
+
+    private static final String SECRET = "eeM9060sDCR7bINitx2gJTKkte0RybgH";
+
+    private final Cache<String, VerifiedToken> verifiedTokenCache = Caffeine.newBuilder().recordStats().build();
+
+    private final JwtTokenProvider jwtTokenProvider = hs256Provider(SECRET, 900_000);
+
+    @Test
+    void parseToken_returnsUserIdAndRoles() {
+        String token = jwtTokenProvider.generateToken(user());
+
+        AuthenticatedUser user = jwtTokenProvider.parseToken(token);
+
+        assertEquals(ConstantUtil.VALID_USER_ID_1, user.id());
+        assertEquals(Set.of(RoleName.USER), user.roles());
+        assertEquals(ConstantUtil.VALID_USER_ID_1.toString(), user.getName());
+        assertEquals("ROLE_USER", user.authorities().get(0).getAuthority());
+    }
+
+    @Test
+    void parseToken_repeatedTokenIsServedFromCache() {
+        String token = jwtTokenProvider.generateToken(user());
+
+        AuthenticatedUser first = jwtTokenProvider.parseToken(token);
+        AuthenticatedUser second = jwtTokenProvider.parseToken(token);
+
+        assertSame(first, second);
+        assertEquals(1, verifiedTokenCache.stats().hitCount());
+        assertEquals(1, verifiedTokenCache.stats().missCount());
+    }
+
+    @Test
+    void parseToken_cachedTokenIsRejectedOnceExpired() throws InterruptedException {
+        String token = hs256Provider(SECRET, 1_000).generateToken(user());
+        jwtTokenProvider.parseToken(token);
+        long expiresAt = verifiedTokenCache.asMap().values().iterator().next().expiresAt();
+
+        Thread.sleep(Math.max(0, expiresAt - System.currentTimeMillis()) + 50);
+
+        assertThrows(ExpiredTokenException.class, () -> jwtTokenProvider.parseToken(token));
+        assertEquals(0, verifiedTokenCache.estimatedSize());
+    }
+
+    @Test
+    void parseToken_rejectsExpiredToken() {
+        String token = hs256Provider(SECRET, -1_000).generateToken(user());
+
+        assertThrows(ExpiredTokenException.class, () -> jwtTokenProvider.parseToken(token));
+    }
+
+    @Test
+    void parseToken_rejectsTokenSignedWithAnotherKey() {
+        String token = hs256Provider("Qm9Vx1cR7tLz2pKe8sJw4hYd6nGa0fUb", 900_000).generateToken(user());
+
+        assertThrows(InvalidTokenException.class, () -> jwtTokenProvider.parseToken(token));
+    }
+
+    @Test
+    void es256_tokenCarriesKidAndIsVerifiedWithPublicKeyOnly() throws Exception {
+        KeyPair pair = ecKeyPair();
+        String publicKeys = "key-1=" + base64(pair.getPublic().getEncoded());
+        JwtTokenProvider signer = es256Provider(new JwtSigningKeys("ES256", SECRET, "key-1",
+                base64(pair.getPrivate().getEncoded()), publicKeys));
+        JwtTokenProvider verifier = es256Provider(new JwtSigningKeys("ES256", SECRET, "", "", publicKeys));
+
+        String token = signer.generateToken(user());
+
+        assertTrue(new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))))
+                .contains("\"kid\":\"key-1\""));
+        assertEquals(ConstantUtil.VALID_USER_ID_1, verifier.parseToken(token).id());
+        assertThrows(IllegalStateException.class, () -> verifier.generateToken(user()));
+    }
+
+    @Test
+    void es256_rejectsHs256TokenAndUnknownKid() throws Exception {
+        JwtTokenProvider es256 = es256Provider(new JwtSigningKeys("ES256", SECRET, "", "", ""));
+        String otherKidToken = es256Provider(new JwtSigningKeys("ES256", SECRET, "", "", ""))
+                .generateToken(user());
+        String hs256Token = jwtTokenProvider.generateToken(user());
+
+        assertThrows(InvalidTokenException.class, () -> es256.parseToken(hs256Token));
+        assertThrows(InvalidTokenException.class, () -> es256.parseToken(otherKidToken));
+        assertThrows(InvalidTokenException.class, () -> jwtTokenProvider.parseToken(otherKidToken));
+    }
+
+    @Test
+    void jwks_publishesEcPublicKeys() throws Exception {
+        KeyPair pair = ecKeyPair();
+        JwtSigningKeys signingKeys = new JwtSigningKeys("ES256", SECRET, "", "",
+                "key-1=" + base64(pair.getPublic().getEncoded()));
+
+        JwkDto jwk = signingKeys.jwks().get(0);
+
+        assertEquals("key-1", jwk.kid());
+        assertEquals("P-256", jwk.crv());
+        assertEquals(43, jwk.x().length());
+        assertEquals(43, jwk.y().length());
+        assertTrue(new JwtSigningKeys("HS256", SECRET, "", "", "").jwks().isEmpty());
+    }
+
+    /**
+     * Новый пользователь с ролью USER: общий {@code UserUtil.getValidUser} изменяют другие тесты
+     */
+    private static User user() {
+        return User.builder()
+                .id(ConstantUtil.VALID_USER_ID_1)
+                .username(ConstantUtil.VALID_USERNAME)
+                .roles(Set.of(RoleUtil.getRoleUser()))
+                .build();
+    }
+
+    private JwtTokenProvider hs256Provider(String secret, long expiration) {
+        return new JwtTokenProvider(new JwtSigningKeys("HS256", secret, "", "", ""), expiration, verifiedTokenCache);
+    }
+
+    private JwtTokenProvider es256Provider(JwtSigningKeys signingKeys) {
+        return new JwtTokenProvider(signingKeys, 900_000, Caffeine.newBuilder().build());
+    }
+
+    private static KeyPair ecKeyPair() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        return generator.generateKeyPair();
+    }
+
+    private static String base64(byte[] bytes) {
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.TooManyRequestsException;
+import com.example.bankcards.util.ConstantUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LoginAttemptLimiterTest {
+
+    private static final String IP = "10.0.0.1";
+
+    private final AtomicLong now = new AtomicLong(Duration.ofHours(1).toMillis());
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final LoginAttemptLimiter limiter = new LoginAttemptLimiter(Duration.ofMinutes(1), 3, 5, 1_000,
+            meterRegistry, now::get);
+
+    @Test
+    void acquire_rejectsUsernameOverLimitCaseInsensitively() {
+        limiter.acquire(ConstantUtil.VALID_USERNAME, IP);
+        limiter.acquire(ConstantUtil.VALID_USERNAME.toUpperCase(), IP);
+        limiter.acquire(ConstantUtil.VALID_USERNAME, IP);
+
+        TooManyRequestsException e = assertThrows(TooManyRequestsException.class,
+                () -> limiter.acquire(ConstantUtil.VALID_USERNAME, IP));
+
+        assertEquals(60, e.getRetryAfterSeconds());
+        assertDoesNotThrow(() -> limiter.acquire(ConstantUtil.VALID_USERNAME_2, IP));
+        assertEquals(1.0, meterRegistry.get("auth.login.throttled").tag("key", "username").counter().count());
+    }
+
+    @Test
+    void acquire_rejectsIpOverLimitAcrossUsernames() {
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire("user" + i, IP);
+        }
+
+        assertThrows(TooManyRequestsException.class, () -> limiter.acquire("user5", IP));
+        assertDoesNotThrow(() -> limiter.acquire("user5", "10.0.0.2"));
+    }
+
+    @Test
+    void acquire_rejectedUsernameDoesNotSpendIpLimit() {
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire(ConstantUtil.VALID_USERNAME, IP);
+        }
+        for (int i = 0; i < 5; i++) {
+            assertThrows(TooManyRequestsException.class, () -> limiter.acquire(ConstantUtil.VALID_USERNAME, IP));
+        }
+
+        limiter.acquire("user1", IP);
+        limiter.acquire("user2", IP);
+        assertThrows(TooManyRequestsException.class, () -> limiter.acquire("user3", IP));
+        assertEquals(1.0, meterRegistry.get("auth.login.throttled").tag("key", "ip").counter().count());
+    }
+
+    @Test
+    void acquire_rejectedIpDoesNotSpendUsernameLimit() {
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire("user" + i, IP);
+        }
+        for (int i = 0; i < 3; i++) {
+            assertThrows(TooManyRequestsException.class, () -> limiter.acquire(ConstantUtil.VALID_USERNAME, IP));
+        }
+
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire(ConstantUtil.VALID_USERNAME, "10.0.0.2");
+        }
+        assertEquals(0.0, meterRegistry.get("auth.login.throttled").tag("key", "username").counter().count());
+    }
+
+    @Test
+    void acquire_previousIntervalCountsWithRemainingWeight() {
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire(ConstantUtil.VALID_USERNAME, IP);
+        }
+
+        now.addAndGet(Duration.ofSeconds(70).toMillis());
+        limiter.acquire(ConstantUtil.VALID_USERNAME, IP);
+        assertThrows(TooManyRequestsException.class, () -> limiter.acquire(ConstantUtil.VALID_USERNAME, IP));
+
+        now.addAndGet(Duration.ofSeconds(30).toMillis());
+        assertDoesNotThrow(() -> limiter.acquire(ConstantUtil.VALID_USERNAME, IP));
+
+        now.addAndGet(Duration.ofMinutes(2).toMillis());
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire(ConstantUtil.VALID_USERNAME, IP);
+        }
+    }
+
+    @Test
+    void reset_clearsUsernameAfterSuccessfulLogin() {
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire(ConstantUtil.VALID_USERNAME, IP);
+        }
+
+        limiter.reset(ConstantUtil.VALID_USERNAME);
+
+        assertDoesNotThrow(() -> limiter.acquire(ConstantUtil.VALID_USERNAME, IP));
+    }
+}
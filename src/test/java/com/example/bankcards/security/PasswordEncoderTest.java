@@ -0,0 +1,54 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.config.SecurityConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordEncoderTest {
+
+    private static final String PASSWORD = "PASSword123!";
+
+    private final SecurityConfig securityConfig = new SecurityConfig(null, null, null);
+
+    @Test
+    void bcrypt_matchesLegacyHashAndUpgradesIt() {
+        PasswordEncoder encoder = securityConfig.passwordEncoder("bcrypt", 5, 1024, 1, 1);
+        String legacyHash = new BCryptPasswordEncoder(5).encode(PASSWORD);
+
+        assertTrue(encoder.matches(PASSWORD, legacyHash));
+        assertTrue(encoder.upgradeEncoding(legacyHash));
+
+        String hash = encoder.encode(PASSWORD);
+        assertTrue(hash.startsWith("{bcrypt}$2a$05$"));
+        assertTrue(encoder.matches(PASSWORD, hash));
+        assertFalse(encoder.upgradeEncoding(hash));
+    }
+
+    @Test
+    void bcrypt_upgradesHashWithLowerStrength() {
+        String weakHash = securityConfig.passwordEncoder("bcrypt", 4, 1024, 1, 1).encode(PASSWORD);
+        PasswordEncoder encoder = securityConfig.passwordEncoder("bcrypt", 5, 1024, 1, 1);
+
+        assertTrue(encoder.matches(PASSWORD, weakHash));
+        assertTrue(encoder.upgradeEncoding(weakHash));
+    }
+
+    @Test
+    void argon2_encodesNewHashesAndUpgradesBcrypt() {
+        String bcryptHash = securityConfig.passwordEncoder("bcrypt", 4, 1024, 1, 1).encode(PASSWORD);
+        PasswordEncoder encoder = securityConfig.passwordEncoder("argon2", 4, 1024, 1, 1);
+
+        String hash = encoder.encode(PASSWORD);
+
+        assertTrue(hash.startsWith("{argon2}$argon2id$"));
+        assertTrue(hash.length() <= 255);
+        assertTrue(encoder.matches(PASSWORD, hash));
+        assertFalse(encoder.upgradeEncoding(hash));
+        assertTrue(encoder.matches(PASSWORD, bcryptHash));
+        assertTrue(encoder.upgradeEncoding(bcryptHash));
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.TooManyRequestsException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PasswordHashingDispatcherTest {
+
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(1), new ThreadPoolExecutor.AbortPolicy());
+
+    private final PasswordHashingDispatcher dispatcher = new PasswordHashingDispatcher(executor);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void submit_runsTaskInPool() throws Exception {
+        String caller = Thread.currentThread().getName();
+
+        assertNotEquals(caller, dispatcher.submit(() -> Thread.currentThread().getName()).get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void submit_rejectsImmediatelyWhenPoolAndQueueAreFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> running = dispatcher.submit(() -> await(release));
+        CompletableFuture<String> queued = dispatcher.submit(() -> await(release));
+
+        assertThrows(TooManyRequestsException.class, () -> dispatcher.submit(() -> "rejected"));
+
+        release.countDown();
+        CompletableFuture.allOf(running, queued).get(1, TimeUnit.SECONDS);
+        assertEquals("done", dispatcher.submit(() -> "done").get(1, TimeUnit.SECONDS));
+    }
+
+    private static String await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "released";
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.util.ConstantUtil;
+import com.example.bankcards.util.ExceptionMessages;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class RateLimitFilterTest {
+
+    private static final String TRANSFER_URL = "/api/user/cards/transfer";
+    private static final String BATCH_TRANSFER_URL = "/api/user/cards/transfers:batch";
+    private static final String BALANCE_URL = "/api/user/cards/" + ConstantUtil.VALID_CARD_ID_1 + "/balance";
+
+    private final AtomicLong now = new AtomicLong();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final RateLimitFilter filter = new RateLimitFilter(true, 1_000, Map.of(
+            RateLimitFilter.Route.TRANSFER, new RateLimitFilter.Quota(2, 1),
+            RateLimitFilter.Route.BATCH_TRANSFER, new RateLimitFilter.Quota(1, 1),
+            RateLimitFilter.Route.READ, new RateLimitFilter.Quota(5, 5),
+            RateLimitFilter.Route.WRITE, new RateLimitFilter.Quota(5, 5)
+    ), new ObjectMapper(), meterRegistry, now::get);
+
+    private final FilterChain chain = mock(FilterChain.class);
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void transfersOverBucketAreRejectedWithRetryAfter() throws Exception {
+        authenticate(ConstantUtil.VALID_USER_ID_1.toString());
+
+        assertEquals(200, perform("POST", TRANSFER_URL).getStatus());
+        assertEquals(200, perform("POST", TRANSFER_URL).getStatus());
+        MockHttpServletResponse rejected = perform("POST", TRANSFER_URL);
+
+        assertEquals(429, rejected.getStatus());
+        assertEquals("1", rejected.getHeader(HttpHeaders.RETRY_AFTER));
+        assertTrue(rejected.getContentAsString().contains(ExceptionMessages.RATE_LIMIT_EXCEEDED.getDescription()));
+        verify(chain, times(2)).doFilter(any(), any());
+        assertEquals(1.0, meterRegistry.get("api.rate-limit.rejected").tag("route", "transfer").counter().count());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(200, perform("POST", TRANSFER_URL).getStatus());
+    }
+
+    @Test
+    void bucketsAreSeparatePerUserAndRoute() throws Exception {
+        authenticate(ConstantUtil.VALID_USER_ID_1.toString());
+        perform("POST", TRANSFER_URL);
+        perform("POST", TRANSFER_URL);
+
+        assertEquals(200, perform("GET", BALANCE_URL).getStatus());
+
+        authenticate("another-user");
+        assertEquals(200, perform("POST", TRANSFER_URL).getStatus());
+    }
+
+    @Test
+    void batchTransfersHaveOwnBucket() throws Exception {
+        authenticate(ConstantUtil.VALID_USER_ID_1.toString());
+
+        assertEquals(200, perform("POST", BATCH_TRANSFER_URL).getStatus());
+        assertEquals(429, perform("POST", BATCH_TRANSFER_URL).getStatus());
+        assertEquals(1.0, meterRegistry.get("api.rate-limit.rejected").tag("route", "batch_transfer").counter()
+                .count());
+
+        assertEquals(200, perform("POST", TRANSFER_URL).getStatus());
+        assertEquals(200, perform("POST", TRANSFER_URL).getStatus());
+    }
+
+    @Test
+    void unauthenticatedAndNonApiRequestsAreNotLimited() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertEquals(200, perform("POST", TRANSFER_URL).getStatus());
+        }
+
+        authenticate(ConstantUtil.VALID_USER_ID_1.toString());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(200, perform("POST", "/auth/refresh").getStatus());
+        }
+        verify(chain, times(10)).doFilter(any(), any());
+    }
+
+    private MockHttpServletResponse perform(String method, String uri) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest(method, uri), response, chain);
+        return response;
+    }
+
+    private static void authenticate(String userId) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                userId, null, List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.enums.RoleName;
+import com.example.bankcards.repository.RoleRepository;
+import com.example.bankcards.util.RoleUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RoleRegistryTest {
+
+    @Mock
+    private RoleRepository roleRepository;
+
+    @Test
+    void rolesAreLoadedOnceAndServedFromMemory() {
+        when(roleRepository.findAll()).thenReturn(List.of(RoleUtil.getRoleAdmin(), RoleUtil.getRoleUser()));
+
+        RoleRegistry registry = new RoleRegistry(roleRepository);
+
+        assertEquals(RoleName.USER, registry.get(RoleName.USER).getName());
+        assertSame(registry.get(RoleName.ADMIN), registry.findByNames(RoleUtil.getRoleAdminSetWithString())
+                .iterator().next());
+        assertEquals(1, registry.findByNames(Set.of("USER", "UNKNOWN")).size());
+        verify(roleRepository).findAll();
+        verifyNoMoreInteractions(roleRepository);
+    }
+
+    @Test
+    void missingRoleFailsStartup() {
+        when(roleRepository.findAll()).thenReturn(List.of(RoleUtil.getRoleUser()));
+
+        assertThrows(IllegalStateException.class, () -> new RoleRegistry(roleRepository));
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.util.ConstantUtil;
+import com.example.bankcards.util.UserUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class UserDetailsServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private UserDetailsService userDetailsService;
+
+    @Test
+    void updatePassword_storesOnlyNewHash() {
+        User user = User.builder()
+                .id(ConstantUtil.VALID_USER_ID_1)
+                .username(ConstantUtil.VALID_USERNAME)
+                .password("$2a$04$legacy")
+                .roles(UserUtil.getValidUser.getRoles())
+                .build();
+
+        UserDetails updated = userDetailsService.updatePassword(user, "{bcrypt}$2a$10$upgraded");
+
+        assertEquals("{bcrypt}$2a$10$upgraded", updated.getPassword());
+        verify(userRepository).updatePassword(ConstantUtil.VALID_USER_ID_1, "{bcrypt}$2a$10$upgraded");
+    }
+}
@@ -3,19 +3,27 @@ package com.example.bankcards.service;
 import com.example.bankcards.dto.request.AuthRequestDto;
 import com.example.bankcards.dto.request.RegisterRequestDto;
 import com.example.bankcards.dto.response.AuthResponseDto;
+import com.example.bankcards.entity.RefreshToken;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.RoleName;
+import com.example.bankcards.exception.ExpiredTokenException;
+import com.example.bankcards.exception.InvalidTokenException;
 import com.example.bankcards.exception.LoginAlreadyExistsException;
-import com.example.bankcards.repository.RoleRepository;
+import com.example.bankcards.repository.RefreshTokenRepository;
 import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.security.JwtTokenProvider;
+import com.example.bankcards.security.RefreshTokenGenerator;
+import com.example.bankcards.security.RoleRegistry;
 import com.example.bankcards.service.impl.AuthServiceImpl;
 import com.example.bankcards.util.AuthUtil;
 import com.example.bankcards.util.ConstantUtil;
 import com.example.bankcards.util.RegisterUtil;
 import com.example.bankcards.util.RoleUtil;
 import com.example.bankcards.util.UserUtil;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -23,13 +31,17 @@ import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Optional;
-import java.util.Set;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -50,7 +62,13 @@ class AuthServiceImplTest {
     private UserRepository userRepository;
 
     @Mock
-    private RoleRepository roleRepository;
+    private RoleRegistry roleRegistry;
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Mock
+    private RefreshTokenGenerator refreshTokenGenerator;
 
     @Mock
     private Authentication authentication;
@@ -58,6 +76,11 @@ class AuthServiceImplTest {
     @InjectMocks
     private AuthServiceImpl authService;
 
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(authService, "refreshTokenExpiration", Duration.ofDays(30));
+    }
+
     @Test
     void login_success() {
         AuthRequestDto request = AuthUtil.getValidAuthRequestDto();
@@ -69,24 +92,121 @@ class AuthServiceImplTest {
                 .thenReturn(authentication);
         when(authentication.getPrincipal()).thenReturn(user);
         when(jwtTokenProvider.generateToken(user)).thenReturn(token);
+        when(refreshTokenGenerator.generate()).thenReturn(ConstantUtil.VALID_REFRESH_TOKEN);
+        when(refreshTokenGenerator.hash(ConstantUtil.VALID_REFRESH_TOKEN))
+                .thenReturn(ConstantUtil.VALID_REFRESH_TOKEN_HASH);
 
         AuthResponseDto result = authService.login(request);
 
         assertEquals(token, result.token());
+        assertEquals(ConstantUtil.VALID_REFRESH_TOKEN, result.refreshToken());
         verify(authenticationManager).authenticate(any(UsernamePasswordAuthenticationToken.class));
         verify(jwtTokenProvider).generateToken(user);
+
+        ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(saved.capture());
+        assertEquals(ConstantUtil.VALID_REFRESH_TOKEN_HASH, saved.getValue().getTokenHash());
+        assertEquals(user.getId(), saved.getValue().getUserId());
+    }
+
+    @Test
+    void refresh_rotatesTokenWithinFamilyWithoutPasswordCheck() {
+        RefreshToken stored = storedRefreshToken(null, Instant.now().plus(Duration.ofDays(1)));
+        User user = UserUtil.getValidUser;
+
+        when(refreshTokenGenerator.hash(ConstantUtil.VALID_REFRESH_TOKEN))
+                .thenReturn(ConstantUtil.VALID_REFRESH_TOKEN_HASH);
+        when(refreshTokenRepository.findByTokenHash(ConstantUtil.VALID_REFRESH_TOKEN_HASH))
+                .thenReturn(Optional.of(stored));
+        when(refreshTokenRepository.markUsed(eq(stored.getId()), any())).thenReturn(1);
+        when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+        when(jwtTokenProvider.generateToken(user)).thenReturn(ConstantUtil.VALID_JWT_TOKEN);
+        when(refreshTokenGenerator.generate()).thenReturn("next-refresh-token");
+        when(refreshTokenGenerator.hash("next-refresh-token")).thenReturn("next-refresh-token-hash");
+
+        AuthResponseDto result = authService.refresh(AuthUtil.getValidRefreshTokenRequestDto());
+
+        assertEquals(ConstantUtil.VALID_JWT_TOKEN, result.token());
+        assertEquals("next-refresh-token", result.refreshToken());
+        ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository).save(saved.capture());
+        assertEquals(stored.getFamilyId(), saved.getValue().getFamilyId());
+        verify(authenticationManager, never()).authenticate(any());
+        verify(refreshTokenRepository, never()).revokeFamily(any());
+    }
+
+    @Test
+    void refresh_reusedTokenRevokesFamily() {
+        RefreshToken stored = storedRefreshToken(Instant.now(), Instant.now().plus(Duration.ofDays(1)));
+
+        when(refreshTokenGenerator.hash(ConstantUtil.VALID_REFRESH_TOKEN))
+                .thenReturn(ConstantUtil.VALID_REFRESH_TOKEN_HASH);
+        when(refreshTokenRepository.findByTokenHash(ConstantUtil.VALID_REFRESH_TOKEN_HASH))
+                .thenReturn(Optional.of(stored));
+
+        assertThrows(InvalidTokenException.class,
+                () -> authService.refresh(AuthUtil.getValidRefreshTokenRequestDto()));
+
+        verify(refreshTokenRepository).revokeFamily(stored.getFamilyId());
+        verify(refreshTokenRepository, never()).save(any());
+        verify(jwtTokenProvider, never()).generateToken(any());
+    }
+
+    @Test
+    void refresh_concurrentlyUsedTokenRevokesFamily() {
+        RefreshToken stored = storedRefreshToken(null, Instant.now().plus(Duration.ofDays(1)));
+
+        when(refreshTokenGenerator.hash(ConstantUtil.VALID_REFRESH_TOKEN))
+                .thenReturn(ConstantUtil.VALID_REFRESH_TOKEN_HASH);
+        when(refreshTokenRepository.findByTokenHash(ConstantUtil.VALID_REFRESH_TOKEN_HASH))
+                .thenReturn(Optional.of(stored));
+        when(refreshTokenRepository.markUsed(eq(stored.getId()), any())).thenReturn(0);
+
+        assertThrows(InvalidTokenException.class,
+                () -> authService.refresh(AuthUtil.getValidRefreshTokenRequestDto()));
+
+        verify(refreshTokenRepository).revokeFamily(stored.getFamilyId());
+    }
+
+    @Test
+    void refresh_expiredToken() {
+        RefreshToken stored = storedRefreshToken(null, Instant.now().minusSeconds(1));
+
+        when(refreshTokenGenerator.hash(ConstantUtil.VALID_REFRESH_TOKEN))
+                .thenReturn(ConstantUtil.VALID_REFRESH_TOKEN_HASH);
+        when(refreshTokenRepository.findByTokenHash(ConstantUtil.VALID_REFRESH_TOKEN_HASH))
+                .thenReturn(Optional.of(stored));
+        when(refreshTokenRepository.markUsed(eq(stored.getId()), any())).thenReturn(1);
+
+        assertThrows(ExpiredTokenException.class,
+                () -> authService.refresh(AuthUtil.getValidRefreshTokenRequestDto()));
+
+        verify(refreshTokenRepository, never()).save(any());
+    }
+
+    @Test
+    void refresh_unknownToken() {
+        when(refreshTokenGenerator.hash(ConstantUtil.VALID_REFRESH_TOKEN))
+                .thenReturn(ConstantUtil.VALID_REFRESH_TOKEN_HASH);
+        when(refreshTokenRepository.findByTokenHash(ConstantUtil.VALID_REFRESH_TOKEN_HASH))
+                .thenReturn(Optional.empty());
+
+        assertThrows(InvalidTokenException.class,
+                () -> authService.refresh(AuthUtil.getValidRefreshTokenRequestDto()));
+
+        verify(refreshTokenRepository, never()).revokeFamily(any());
     }
 
     @Test
     void register_success() {
         RegisterRequestDto request = RegisterUtil.getValidRegisterRequestDto();
 
-        when(userRepository.findByUsername(request.username()))
-                .thenReturn(Optional.empty());
+        when(userRepository.existsByUsername(request.username()))
+                .thenReturn(false);
         when(passwordEncoder.encode(request.password()))
                 .thenReturn("encoded-password");
-        when(roleRepository.findByNameIn(Set.of("USER")))
-                .thenReturn(Set.of(RoleUtil.getRoleUser()));
+        when(roleRegistry.get(RoleName.USER))
+                .thenReturn(RoleUtil.getRoleUser());
 
         String result = authService.register(request);
 
@@ -101,12 +221,24 @@ class AuthServiceImplTest {
     void register_loginAlreadyExists() {
         RegisterRequestDto request = RegisterUtil.getValidRegisterRequestDto();
 
-        when(userRepository.findByUsername(request.username()))
-                .thenReturn(Optional.of(UserUtil.getValidUser));
+        when(userRepository.existsByUsername(request.username()))
+                .thenReturn(true);
 
         assertThrows(LoginAlreadyExistsException.class,
                 () -> authService.register(request));
 
         verify(userRepository, never()).save(any());
     }
+
+    private RefreshToken storedRefreshToken(Instant usedAt, Instant expiresAt) {
+        return RefreshToken.builder()
+                .id(UUID.randomUUID())
+                .tokenHash(ConstantUtil.VALID_REFRESH_TOKEN_HASH)
+                .userId(UserUtil.getValidUser.getId())
+                .familyId(UUID.randomUUID())
+                .createdAt(Instant.now().minus(Duration.ofDays(1)))
+                .expiresAt(expiresAt)
+                .usedAt(usedAt)
+                .build();
+    }
 }
@@ -0,0 +1,163 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.response.CardImportResponseDto;
+import com.example.bankcards.entity.enums.CardImportFormat;
+import com.example.bankcards.security.CardNumberBlindIndex;
+import com.example.bankcards.security.CardNumberCipher;
+import com.example.bankcards.service.impl.CardImportServiceImpl;
+import com.example.bankcards.util.ConstantUtil;
+import com.example.bankcards.util.ExceptionMessages;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CardImportServiceImplTest {
+
+    private static final String CSV_ROW = ConstantUtil.VALID_USER_ID_1 + "," + ConstantUtil.CARD_NUMBER_1
+            + ",ACTIVE,2030-12-31,300.00";
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private CardNumberCipher cardNumberCipher;
+
+    private ExecutorService executor;
+
+    private CardImportServiceImpl cardImportService;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+        cardImportService = new CardImportServiceImpl(jdbcTemplate, transactionTemplate, cardNumberCipher,
+                new CardNumberBlindIndex("test-blind-index-secret"), new ObjectMapper().findAndRegisterModules(),
+                Validation.buildDefaultValidatorFactory().getValidator(), executor);
+        ReflectionTestUtils.setField(cardImportService, "chunkSize", 2);
+        ReflectionTestUtils.setField(cardImportService, "maxInFlight", 1);
+
+        lenient().doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        lenient().when(cardNumberCipher.encrypt(anyString())).thenReturn("encrypted");
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void importCards_csvWritesChunksInBatchesAndReportsInvalidRows() {
+        String csv = String.join("\n",
+                "ownerId,number,status,expiryDate,balance",
+                CSV_ROW,
+                CSV_ROW,
+                "not-a-uuid," + ConstantUtil.CARD_NUMBER_1 + ",ACTIVE,2030-12-31,300.00",
+                "",
+                CSV_ROW);
+
+        CardImportResponseDto result = cardImportService.importCards(stream(csv), CardImportFormat.CSV);
+
+        assertEquals(3, result.imported());
+        assertEquals(1, result.failed());
+        assertEquals(4, result.errors().get(0).line());
+
+        ArgumentCaptor<List<Object[]>> batches = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(3)).batchUpdate(anyString(), batches.capture());
+        assertEquals(List.of(1, 1, 1), batches.getAllValues().stream().map(List::size).toList());
+        assertEquals("encrypted", batches.getAllValues().get(0).get(0)[1]);
+        assertEquals("1234", batches.getAllValues().get(0).get(0)[2]);
+        assertEquals(64, ((String) batches.getAllValues().get(0).get(0)[3]).length());
+        assertEquals(ConstantUtil.VALID_USER_ID_1, batches.getAllValues().get(0).get(0)[4]);
+    }
+
+    @Test
+    void importCards_ndjsonRejectsRowsFailingValidation() {
+        String ndjson = String.join("\n",
+                "{\"ownerId\":\"" + ConstantUtil.VALID_USER_ID_1 + "\",\"number\":\"" + ConstantUtil.CARD_NUMBER_1
+                        + "\",\"status\":\"ACTIVE\",\"expiryDate\":\"2030-12-31\",\"balance\":300}",
+                "{\"number\":\"" + ConstantUtil.CARD_NUMBER_1
+                        + "\",\"status\":\"ACTIVE\",\"expiryDate\":\"2030-12-31\",\"balance\":300}",
+                "{broken");
+
+        CardImportResponseDto result = cardImportService.importCards(stream(ndjson), CardImportFormat.NDJSON);
+
+        assertEquals(1, result.imported());
+        assertEquals(2, result.failed());
+        assertEquals(List.of(2L, 3L), result.errors().stream().map(error -> error.line()).toList());
+    }
+
+    @Test
+    void importCards_duplicateInChunkRejectsOnlyThatRow() {
+        String csv = String.join("\n", CSV_ROW, CSV_ROW, CSV_ROW);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DuplicateKeyException("duplicate number_hash"))
+                .thenReturn(new int[]{1});
+        when(jdbcTemplate.update(anyString(), any(Object[].class)))
+                .thenReturn(1)
+                .thenThrow(new DuplicateKeyException("duplicate number_hash"));
+
+        CardImportResponseDto result = cardImportService.importCards(stream(csv), CardImportFormat.CSV);
+
+        assertEquals(2, result.imported());
+        assertEquals(1, result.failed());
+        assertEquals(2, result.errors().get(0).line());
+        assertEquals(ExceptionMessages.IMPORT_ROW_NOT_SAVED.getDescription(), result.errors().get(0).message());
+        verify(jdbcTemplate, times(2)).update(anyString(), any(Object[].class));
+    }
+
+    @Test
+    void importCards_failedChunkDoesNotStopImport() {
+        String csv = String.join("\n", CSV_ROW, CSV_ROW, CSV_ROW);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new QueryTimeoutException("canceling statement due to statement timeout"))
+                .thenReturn(new int[]{1});
+
+        CardImportResponseDto result = cardImportService.importCards(stream(csv), CardImportFormat.CSV);
+
+        assertEquals(1, result.imported());
+        assertEquals(2, result.failed());
+        assertEquals(1, result.errors().get(0).line());
+        assertEquals("Строки 1-2 не сохранены", result.errors().get(0).message());
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+    }
+
+    private InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.security.CardNumberBlindIndex;
+import com.example.bankcards.security.CardNumberCipher;
+import com.example.bankcards.service.impl.CardNumberBackfill;
+import com.example.bankcards.util.ConstantUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CardNumberBackfillTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private CardNumberCipher cardNumberCipher;
+
+    @Mock
+    private CardNumberBlindIndex cardNumberBlindIndex;
+
+    @InjectMocks
+    private CardNumberBackfill backfill;
+
+    @BeforeEach
+    void setUp() {
+        lenient().doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    void backfill_updatesDecryptableCardsAndSkipsBrokenOnes() throws Exception {
+        returnOneBatch("encrypted-1", "broken");
+        when(cardNumberCipher.decrypt("encrypted-1")).thenReturn(ConstantUtil.CARD_NUMBER_1);
+        when(cardNumberCipher.decrypt("broken")).thenThrow(new IllegalStateException("bad padding"));
+        when(cardNumberBlindIndex.of(ConstantUtil.CARD_NUMBER_1)).thenReturn("hash-1");
+
+        backfill.backfill();
+
+        ArgumentCaptor<List<Object[]>> params = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), params.capture());
+        assertEquals(1, params.getValue().size());
+        assertArrayEquals(new Object[]{"1234", "hash-1", ConstantUtil.VALID_CARD_ID_1}, params.getValue().get(0));
+        verify(jdbcTemplate, times(2)).query(anyString(), any(RowMapper.class), any(), eq(500));
+    }
+
+    @Test
+    void backfill_duplicateNumberFallsBackToRowByRowUpdates() throws Exception {
+        returnOneBatch("g1:encrypted-1", "g1:encrypted-2");
+        when(cardNumberCipher.decrypt(anyString())).thenReturn(ConstantUtil.CARD_NUMBER_1);
+        when(cardNumberBlindIndex.of(ConstantUtil.CARD_NUMBER_1)).thenReturn("hash-1");
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new DataIntegrityViolationException("dup"));
+        when(jdbcTemplate.update(anyString(), any(Object[].class)))
+                .thenReturn(1)
+                .thenThrow(new DataIntegrityViolationException("dup"));
+
+        backfill.backfill();
+
+        verify(jdbcTemplate, times(2)).update(anyString(), any(Object[].class));
+    }
+
+    private void returnOneBatch(String firstNumber, String secondNumber) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getObject("id", UUID.class)).thenReturn(ConstantUtil.VALID_CARD_ID_1, ConstantUtil.VALID_CARD_ID_2);
+        when(rs.getString("card_number")).thenReturn(firstNumber, secondNumber);
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any()))
+                .thenAnswer(invocation -> {
+                    RowMapper<?> mapper = invocation.getArgument(1);
+                    return List.of(mapper.mapRow(rs, 0), mapper.mapRow(rs, 1));
+                })
+                .thenReturn(List.of());
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.security.CardNumberCipher;
+import com.example.bankcards.service.impl.CardReEncryptionJob;
+import com.example.bankcards.util.ConstantUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CardReEncryptionJobTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private CardNumberCipher cardNumberCipher;
+
+    @Mock
+    private ExecutorService coordinator;
+
+    private ExecutorService workers;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private CardReEncryptionJob job;
+
+    @BeforeEach
+    void setUp() {
+        workers = Executors.newFixedThreadPool(2);
+        meterRegistry = new SimpleMeterRegistry();
+        job = new CardReEncryptionJob(jdbcTemplate, transactionTemplate, cardNumberCipher, coordinator, workers,
+                meterRegistry);
+        ReflectionTestUtils.setField(job, "pause", Duration.ZERO);
+
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(coordinator).execute(any());
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(cardNumberCipher.currentPrefix()).thenReturn("g2:");
+    }
+
+    @AfterEach
+    void tearDown() {
+        workers.shutdownNow();
+    }
+
+    @Test
+    void start_reEncryptsCardsWithOldKeyAndPublishesMetrics() throws Exception {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), eq("g2:%"))).thenReturn(2L);
+        returnOneBatch("g1:old", "broken");
+        when(cardNumberCipher.decrypt("g1:old")).thenReturn(ConstantUtil.CARD_NUMBER_1);
+        when(cardNumberCipher.decrypt("broken")).thenThrow(new IllegalStateException("bad tag"));
+        when(cardNumberCipher.encrypt(ConstantUtil.CARD_NUMBER_1)).thenReturn("g2:new");
+        when(jdbcTemplate.batchUpdate(anyString(), any(List.class))).thenReturn(new int[]{1});
+
+        job.start();
+
+        ArgumentCaptor<List<Object[]>> params = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), params.capture());
+        assertEquals(1, params.getValue().size());
+        assertArrayEquals(new Object[]{"g2:new", ConstantUtil.VALID_CARD_ID_1, "g1:old"}, params.getValue().get(0));
+        assertEquals(1.0, meterRegistry.get("card.reencryption.cards").tag("outcome", "re-encrypted").counter().count());
+        assertEquals(1.0, meterRegistry.get("card.reencryption.cards").tag("outcome", "failed").counter().count());
+        assertEquals(0.0, meterRegistry.get("card.reencryption.remaining").gauge().value());
+        assertEquals(0.0, meterRegistry.get("card.reencryption.running").gauge().value());
+        assertEquals(1, meterRegistry.get("card.reencryption.batch").timer().count());
+    }
+
+    @Test
+    void start_skipsWalkWhenAllCardsUseActiveKey() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), eq("g2:%"))).thenReturn(0L);
+
+        job.start();
+
+        verify(jdbcTemplate, never()).query(anyString(), any(RowMapper.class), any(), any(), any());
+        verify(transactionTemplate, never()).execute(any());
+    }
+
+    private void returnOneBatch(String firstNumber, String secondNumber) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getObject("id", UUID.class)).thenReturn(ConstantUtil.VALID_CARD_ID_1, ConstantUtil.VALID_CARD_ID_2);
+        when(rs.getString("card_number")).thenReturn(firstNumber, secondNumber);
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq("g2:%"), any(), eq(200)))
+                .thenAnswer(invocation -> {
+                    RowMapper<?> mapper = invocation.getArgument(1);
+                    return List.of(mapper.mapRow(rs, 0), mapper.mapRow(rs, 1));
+                })
+                .thenReturn(List.of());
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.request.CardBulkCreateRequestDto;
+import com.example.bankcards.dto.request.CardCreateRequestDto;
+import com.example.bankcards.dto.request.CardTransferRequestDto;
+import com.example.bankcards.dto.response.CardInfoResponseDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.TransferMode;
+import com.example.bankcards.exception.InsufficientBalanceException;
+import com.example.bankcards.exception.TransferConflictException;
+import com.example.bankcards.repository.CardRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Нагрузочный тест переводов на PostgreSQL в Testcontainers со схемой из миграций Liquibase.
+ * Потоки одновременно переводят деньги между одними и теми же картами в обоих направлениях, что без
+ * упорядоченной блокировки строк даёт взаимоблокировку. Проверяется, что суммарный баланс сохранился, каждому
+ * успешному переводу соответствует запись журнала, а все отказы — это нехватка средств или конфликт версий;
+ * взаимоблокировка или таймаут блокировки приходят другим исключением и валят тест.
+ * Без Docker тест пропускается
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@SpringBootTest(properties = {
+        "card.number-backfill.enabled=false",
+        "card.re-encryption.enabled=false",
+        "card.transfer.optimistic.max-attempts=20",
+        "card.transfer.optimistic.max-backoff-ms=50",
+        "spring.datasource.hikari.connection-timeout=30000"
+})
+class CardServiceImplConcurrencyTest {
+
+    private static final int THREADS = 64;
+    private static final int TRANSFERS_PER_THREAD = 50;
+    private static final int CARDS = 3;
+    private static final BigDecimal INITIAL_BALANCE = BigDecimal.valueOf(1000);
+    private static final String OK = "OK";
+
+    @Container
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15");
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        setTransferMode(TransferMode.PESSIMISTIC);
+    }
+
+    @ParameterizedTest
+    @EnumSource(TransferMode.class)
+    void transfer_oppositeDirections_conserveTotalBalanceWithoutDeadlocks(TransferMode mode) throws Exception {
+        setTransferMode(mode);
+        UUID ownerId = UUID.randomUUID();
+        List<UUID> cardIds = issueCards(ownerId);
+        Map<String, AtomicInteger> outcomes = new ConcurrentHashMap<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                // чётные потоки идут по кругу в одну сторону, нечётные — в обратную
+                UUID from = cardIds.get(t % CARDS);
+                UUID to = cardIds.get((t % 2 == 0 ? t + 1 : t + CARDS - 1) % CARDS);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                        outcomes.computeIfAbsent(transfer(ownerId, from, to), key -> new AtomicInteger())
+                                .incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<Card> cards = cardRepository.findAllById(cardIds);
+        BigDecimal total = cards.stream().map(Card::getBalance).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, INITIAL_BALANCE.multiply(BigDecimal.valueOf(CARDS)).compareTo(total));
+        assertTrue(cards.stream().allMatch(card -> card.getBalance().signum() >= 0));
+
+        Map<String, Integer> unexpected = new ConcurrentHashMap<>();
+        outcomes.forEach((outcome, count) -> {
+            if (!isExpected(outcome)) {
+                unexpected.put(outcome, count.get());
+            }
+        });
+        assertEquals(Map.of(), unexpected);
+
+        int succeeded = outcomes.getOrDefault(OK, new AtomicInteger()).get();
+        assertTrue(succeeded > 0);
+        assertEquals(succeeded, ledgerEntries(ownerId));
+    }
+
+    private String transfer(UUID ownerId, UUID from, UUID to) {
+        try {
+            cardService.transfer(CardTransferRequestDto.builder()
+                    .fromCardId(from)
+                    .toCardId(to)
+                    .amount(BigDecimal.valueOf(ThreadLocalRandom.current().nextInt(1, 50)))
+                    .build(), ownerId, null);
+            return OK;
+        } catch (RuntimeException e) {
+            return e.getClass().getSimpleName();
+        }
+    }
+
+    private static boolean isExpected(String outcome) {
+        return outcome.equals(OK)
+                || outcome.equals(InsufficientBalanceException.class.getSimpleName())
+                || outcome.equals(TransferConflictException.class.getSimpleName());
+    }
+
+    private List<UUID> issueCards(UUID ownerId) {
+        List<CardCreateRequestDto> cards = IntStream.range(0, CARDS)
+                .mapToObj(i -> CardCreateRequestDto.builder()
+                        .ownerId(ownerId)
+                        .number(String.valueOf(ThreadLocalRandom.current()
+                                .nextLong(4_000_000_000_000_000L, 5_000_000_000_000_000L)))
+                        .status(CardStatus.ACTIVE)
+                        .expiryDate(LocalDate.now().plusYears(3))
+                        .balance(INITIAL_BALANCE)
+                        .build())
+                .toList();
+        return cardService.createCards(CardBulkCreateRequestDto.builder().cards(cards).build()).stream()
+                .map(CardInfoResponseDto::id)
+                .toList();
+    }
+
+    private int ledgerEntries(UUID ownerId) {
+        return jdbcTemplate.queryForObject("""
+                select count(*) from card_transaction
+                where from_card_id in (select id from card where owner_id = ?)
+                """, Integer.class, ownerId);
+    }
+
+    private void setTransferMode(TransferMode mode) {
+        Object target = AopTestUtils.getUltimateTargetObject(cardService);
+        ReflectionTestUtils.setField(target, "transferMode", mode);
+    }
+}
@@ -1,41 +1,80 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.request.CardBatchTransferRequestDto;
+import com.example.bankcards.dto.request.CardBulkCreateRequestDto;
 import com.example.bankcards.dto.request.CardCreateRequestDto;
+import com.example.bankcards.dto.request.CardTransferRequestDto;
+import com.example.bankcards.dto.response.CardBatchTransferResponseDto;
 import com.example.bankcards.dto.response.CardInfoResponseDto;
+import com.example.bankcards.dto.response.CardTransactionPageResponseDto;
 import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardTransaction;
 import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.TransferMode;
+import com.example.bankcards.exception.CardIsNotActiveException;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.CardAlreadyExistsException;
 import com.example.bankcards.exception.CardNotOwnedException;
 import com.example.bankcards.exception.InsufficientBalanceException;
 import com.example.bankcards.exception.NotFoundException;
 import com.example.bankcards.exception.SameCardTransferException;
+import com.example.bankcards.exception.TransferConflictException;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardTransactionRepository;
+import com.example.bankcards.security.CardNumberBlindIndex;
+import com.example.bankcards.security.CardNumberCipher;
 import com.example.bankcards.service.impl.CardServiceImpl;
 import com.example.bankcards.util.CardUtil;
 import com.example.bankcards.util.ConstantUtil;
+import com.example.bankcards.util.TransactionCursor;
 import com.example.bankcards.util.mapper.CardMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
-import org.springframework.security.crypto.encrypt.TextEncryptor;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -44,35 +83,142 @@ import static org.mockito.Mockito.when;
 @ExtendWith(MockitoExtension.class)
 class CardServiceImplTest {
 
+    private static final UUID USER_ID = ConstantUtil.VALID_USER_ID_1;
+    private static final String IDEMPOTENCY_KEY = "payroll-2025-06-01-42";
+    private static final String SCOPED_IDEMPOTENCY_KEY = ConstantUtil.VALID_USER_ID_1 + ":" + IDEMPOTENCY_KEY;
+
     @Mock
     private CardRepository cardRepository;
 
+    @Mock
+    private CardTransactionRepository cardTransactionRepository;
+
     @Mock
     private CardMapper cardMapper;
 
     @Mock
-    private TextEncryptor textEncryptor;
+    private CardNumberCipher cardNumberCipher;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private Cache<String, CardTransaction> transferIdempotencyCache;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private CardNumberBlindIndex cardNumberBlindIndex;
 
     @InjectMocks
     private CardServiceImpl cardService;
 
+    @BeforeEach
+    void setUp() {
+        lenient().doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
 
     @Test
     void createCard_success() {
         CardCreateRequestDto requestDto = mock(CardCreateRequestDto.class);
-        CardInfoResponseDto responseDto = mock(CardInfoResponseDto.class);
-        Card card = Card.builder().id(ConstantUtil.VALID_CARD_ID_1).build();
+        Card card = Card.builder().id(ConstantUtil.VALID_CARD_ID_1).number(ConstantUtil.CARD_NUMBER_1).build();
 
         when(cardMapper.toCard(requestDto)).thenReturn(card);
+        when(cardNumberCipher.encrypt(ConstantUtil.CARD_NUMBER_1)).thenReturn("v2:encrypted");
+        when(cardNumberBlindIndex.of(ConstantUtil.CARD_NUMBER_1)).thenReturn("hash-1");
         when(cardRepository.save(card)).thenReturn(card);
-        when(cardMapper.toDto(card)).thenReturn(responseDto);
 
         CardInfoResponseDto result = cardService.createCard(requestDto);
 
-        assertEquals(responseDto, result);
+        assertEquals(ConstantUtil.VALID_CARD_ID_1, result.id());
+        assertEquals(ConstantUtil.MASKED_CARD_NUMBER_1, result.number());
         verify(cardRepository).save(card);
     }
 
+    @Test
+    void createCard_numberAlreadyExists() {
+        CardCreateRequestDto requestDto = CardUtil.getValidCardCreateRequestDto();
+        Card card = Card.builder().number(ConstantUtil.CARD_NUMBER_1).build();
+
+        when(cardMapper.toCard(requestDto)).thenReturn(card);
+        when(cardNumberBlindIndex.of(ConstantUtil.CARD_NUMBER_1)).thenReturn("hash-1");
+        when(cardRepository.existsByNumberHashIn(List.of("hash-1"))).thenReturn(true);
+
+        assertThrows(CardAlreadyExistsException.class, () -> cardService.createCard(requestDto));
+        verify(cardRepository, never()).save(any());
+    }
+
+    @Test
+    void createCards_duplicateNumberInRequest() {
+        CardCreateRequestDto requestDto = CardUtil.getValidCardCreateRequestDto();
+        CardBulkCreateRequestDto request = CardBulkCreateRequestDto.builder()
+                .cards(List.of(requestDto, requestDto))
+                .build();
+
+        when(cardMapper.toCard(requestDto)).thenAnswer(invocation -> Card.builder()
+                .number(ConstantUtil.CARD_NUMBER_1)
+                .build());
+        when(cardNumberBlindIndex.of(ConstantUtil.CARD_NUMBER_1)).thenReturn("hash-1");
+
+        assertThrows(CardAlreadyExistsException.class, () -> cardService.createCards(request));
+        verify(cardRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void findByNumber_looksUpByBlindIndex() {
+        Card card = CardUtil.getValidCard1();
+        card.setLast4("1234");
+        when(cardNumberBlindIndex.of(ConstantUtil.CARD_NUMBER_1)).thenReturn("hash-1");
+        when(cardRepository.findByNumberHash("hash-1")).thenReturn(Optional.of(card));
+
+        CardInfoResponseDto result = cardService.findByNumber(ConstantUtil.CARD_NUMBER_1);
+
+        assertEquals(ConstantUtil.VALID_CARD_ID_1, result.id());
+        assertEquals(ConstantUtil.MASKED_CARD_NUMBER_1, result.number());
+        verify(cardNumberCipher, never()).decrypt(any());
+    }
+
+    @Test
+    void findByNumber_notFound() {
+        when(cardNumberBlindIndex.of(ConstantUtil.CARD_NUMBER_1)).thenReturn("hash-1");
+        when(cardRepository.findByNumberHash("hash-1")).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> cardService.findByNumber(ConstantUtil.CARD_NUMBER_1));
+    }
+
+    @Test
+    void createCards_savesAllCardsInOneCall() {
+        CardCreateRequestDto requestDto = CardUtil.getValidCardCreateRequestDto();
+        CardBulkCreateRequestDto request = CardBulkCreateRequestDto.builder()
+                .cards(List.of(requestDto, requestDto, requestDto))
+                .build();
+
+        when(cardMapper.toCard(requestDto)).thenAnswer(invocation -> Card.builder()
+                .number(ConstantUtil.CARD_NUMBER_1)
+                .build());
+        when(cardNumberCipher.encrypt(ConstantUtil.CARD_NUMBER_1)).thenReturn("encrypted");
+        when(cardNumberBlindIndex.of(ConstantUtil.CARD_NUMBER_1)).thenReturn("hash-1", "hash-2", "hash-3");
+        when(cardRepository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<CardInfoResponseDto> result = cardService.createCards(request);
+
+        assertEquals(3, result.size());
+        assertTrue(result.stream().allMatch(card -> ConstantUtil.MASKED_CARD_NUMBER_1.equals(card.number())));
+        ArgumentCaptor<List<Card>> saved = ArgumentCaptor.forClass(List.class);
+        verify(cardRepository, times(1)).saveAll(saved.capture());
+        assertEquals(3, saved.getValue().size());
+        assertTrue(saved.getValue().stream().allMatch(card -> "encrypted".equals(card.getNumber())));
+        assertTrue(saved.getValue().stream().allMatch(card -> "1234".equals(card.getLast4())));
+        verify(cardRepository, never()).save(any());
+    }
+
     @Test
     void blockCard_cardNotFound() {
         when(cardRepository.findById(ConstantUtil.VALID_CARD_ID_1)).thenReturn(Optional.empty());
@@ -139,6 +285,27 @@ class CardServiceImplTest {
         verify(cardRepository, times(1)).findAll((Specification<Card>) any(), eq(pageable));
     }
 
+    @Test
+    void exportCards_writesOneMaskedCardPerLineAndDetachesIt() {
+        Card card1 = CardUtil.getValidCard1();
+        Card card2 = CardUtil.getValidCard2();
+        card1.setNumber("encrypted-1");
+        card2.setNumber("encrypted-2");
+        when(cardRepository.streamAll()).thenReturn(Stream.of(card1, card2));
+        when(cardNumberCipher.decrypt("encrypted-1")).thenReturn(ConstantUtil.CARD_NUMBER_1);
+        when(cardNumberCipher.decrypt("encrypted-2")).thenReturn(ConstantUtil.CARD_NUMBER_1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        cardService.exportCards(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains(ConstantUtil.VALID_CARD_ID_1.toString()));
+        assertTrue(lines[1].contains(ConstantUtil.MASKED_CARD_NUMBER_1));
+        assertFalse(lines[1].contains(ConstantUtil.CARD_NUMBER_1));
+        verify(entityManager).detach(card1);
+        verify(entityManager).detach(card2);
+    }
 
     @Test
     void getUserCards_success() {
@@ -153,6 +320,20 @@ class CardServiceImplTest {
         assertEquals(1, result.getTotalElements());
     }
 
+    @Test
+    void getUserCards_masksStoredLast4WithoutDecrypting() {
+        Pageable pageable = Pageable.unpaged();
+        Card card = Card.builder().ownerId(ConstantUtil.VALID_USER_ID_1).number("encrypted").last4("1234").build();
+
+        when(cardRepository.findAllByOwnerId(ConstantUtil.VALID_USER_ID_1, pageable))
+                .thenReturn(new PageImpl<>(List.of(card)));
+
+        Page<CardInfoResponseDto> result = cardService.getUserCards(ConstantUtil.VALID_USER_ID_1, pageable);
+
+        assertEquals(ConstantUtil.MASKED_CARD_NUMBER_1, result.getContent().get(0).number());
+        verify(cardNumberCipher, never()).decrypt(any());
+    }
+
     @Test
     void blockOwnedCard_notOwned() {
         Card card = CardUtil.getValidCard1WithRandomUser();
@@ -178,18 +359,16 @@ class CardServiceImplTest {
 
     @Test
     void transfer_SameCardTransfer() {
-        Card from = CardUtil.getValidCard1();
-
-        when(cardRepository.findById(ConstantUtil.VALID_CARD_ID_1)).thenReturn(Optional.of(from));
-
         assertThrows(
                 SameCardTransferException.class,
                 () -> cardService.transfer(
-                        CardUtil.getTransferRequestDtoWithSameCardOnToAndFromFields()
+                        CardUtil.getTransferRequestDtoWithSameCardOnToAndFromFields(), USER_ID, null
                 )
         );
 
+        verify(cardRepository, never()).findAllByIdInForUpdate(any());
         verify(cardRepository, never()).save(any());
+        verify(cardTransactionRepository, never()).save(any());
     }
 
     @Test
@@ -198,34 +377,408 @@ class CardServiceImplTest {
 
         Card to = CardUtil.getValidCard2();
 
-        when(cardRepository.findById(ConstantUtil.VALID_CARD_ID_1)).thenReturn(Optional.of(from));
-        when(cardRepository.findById(ConstantUtil.VALID_CARD_ID_2)).thenReturn(Optional.of(to));
+        when(cardRepository.findAllByIdInForUpdate(any())).thenReturn(List.of(from, to));
 
         assertThrows(
                 InsufficientBalanceException.class,
                 () -> cardService.transfer(
-                        CardUtil.getTransferRequestDtoWith99999Balance()
+                        CardUtil.getTransferRequestDtoWith99999Balance(), USER_ID, null
                 )
         );
 
         verify(cardRepository, never()).save(any());
+        verify(cardTransactionRepository, never()).save(any());
     }
 
     @Test
     void transfer_success() {
         Card from = CardUtil.getValidCard1();
         Card to = CardUtil.getValidCard2();
-        when(cardRepository.findById(ConstantUtil.VALID_CARD_ID_1)).thenReturn(Optional.of(from));
-        when(cardRepository.findById(ConstantUtil.VALID_CARD_ID_2)).thenReturn(Optional.of(to));
+        when(cardRepository.findAllByIdInForUpdate(any())).thenReturn(List.of(from, to));
 
-        String result = cardService.transfer(CardUtil.getValidTransferRequestDto());
+        String result = cardService.transfer(CardUtil.getValidTransferRequestDto(), USER_ID, null);
 
         assertEquals(BigDecimal.valueOf(100), from.getBalance());
         assertEquals(BigDecimal.valueOf(1200), to.getBalance());
         assertEquals("Перевод прошёл успешно", result);
 
+        verify(cardRepository).findAllByIdInForUpdate(
+                List.of(ConstantUtil.VALID_CARD_ID_1, ConstantUtil.VALID_CARD_ID_2));
         verify(cardRepository).save(from);
         verify(cardRepository).save(to);
+
+        ArgumentCaptor<CardTransaction> ledgerEntry = ArgumentCaptor.forClass(CardTransaction.class);
+        verify(cardTransactionRepository).save(ledgerEntry.capture());
+        assertEquals(ConstantUtil.VALID_CARD_ID_1, ledgerEntry.getValue().getFromCardId());
+        assertEquals(ConstantUtil.VALID_CARD_ID_2, ledgerEntry.getValue().getToCardId());
+        assertEquals(BigDecimal.valueOf(200), ledgerEntry.getValue().getAmount());
+        assertNotNull(ledgerEntry.getValue().getCreatedAt());
+    }
+
+    @Test
+    void transfer_cardNotFound() {
+        when(cardRepository.findAllByIdInForUpdate(any())).thenReturn(List.of(CardUtil.getValidCard1()));
+
+        assertThrows(
+                NotFoundException.class,
+                () -> cardService.transfer(CardUtil.getValidTransferRequestDto(), USER_ID, null)
+        );
+
+        verify(cardRepository, never()).save(any());
+    }
+
+    @Test
+    void transfer_cardsOfAnotherUser() {
+        Card from = CardUtil.getValidCard1();
+        when(cardRepository.findAllByIdInForUpdate(any())).thenReturn(List.of(from, CardUtil.getValidCard2()));
+
+        assertThrows(
+                CardNotOwnedException.class,
+                () -> cardService.transfer(CardUtil.getValidTransferRequestDto(), ConstantUtil.ANOTHER_USER_ID, null)
+        );
+
+        assertEquals(BigDecimal.valueOf(300), from.getBalance());
+        verify(cardRepository, never()).save(any());
+        verify(cardTransactionRepository, never()).save(any());
+    }
+
+    @Test
+    void transfer_atomic_cardsOfAnotherUser() {
+        ReflectionTestUtils.setField(cardService, "transferMode", TransferMode.ATOMIC);
+        when(cardRepository.findById(ConstantUtil.VALID_CARD_ID_1)).thenReturn(Optional.of(CardUtil.getValidCard1()));
+
+        assertThrows(
+                CardNotOwnedException.class,
+                () -> cardService.transfer(CardUtil.getValidTransferRequestDto(), ConstantUtil.ANOTHER_USER_ID, null)
+        );
+
+        verify(cardRepository).creditActiveCard(
+                ConstantUtil.VALID_CARD_ID_2, ConstantUtil.ANOTHER_USER_ID, BigDecimal.valueOf(200));
+        verify(cardRepository, never()).debitActiveCard(any(), any(), any());
+    }
+
+    @Test
+    void transfer_atomic_success() {
+        ReflectionTestUtils.setField(cardService, "transferMode", TransferMode.ATOMIC);
+        BigDecimal amount = BigDecimal.valueOf(200);
+
+        when(cardRepository.creditActiveCard(ConstantUtil.VALID_CARD_ID_2, ConstantUtil.VALID_USER_ID_1, amount))
+                .thenReturn(1);
+        when(cardRepository.debitActiveCard(ConstantUtil.VALID_CARD_ID_1, ConstantUtil.VALID_USER_ID_1, amount))
+                .thenReturn(1);
+
+        String result = cardService.transfer(CardUtil.getValidTransferRequestDto(), USER_ID, null);
+
+        assertEquals("Перевод прошёл успешно", result);
+        InOrder updates = inOrder(cardRepository);
+        updates.verify(cardRepository).creditActiveCard(ConstantUtil.VALID_CARD_ID_2, ConstantUtil.VALID_USER_ID_1, amount);
+        updates.verify(cardRepository).debitActiveCard(ConstantUtil.VALID_CARD_ID_1, ConstantUtil.VALID_USER_ID_1, amount);
+        verify(cardRepository, never()).findById(any());
+        verify(cardRepository, never()).save(any());
+        verify(cardTransactionRepository).save(any(CardTransaction.class));
+    }
+
+    @Test
+    void transfer_atomic_InsufficientBalance() {
+        ReflectionTestUtils.setField(cardService, "transferMode", TransferMode.ATOMIC);
+
+        when(cardRepository.creditActiveCard(any(), any(), any())).thenReturn(1);
+        when(cardRepository.debitActiveCard(any(), any(), any())).thenReturn(0);
+        when(cardRepository.findById(ConstantUtil.VALID_CARD_ID_1)).thenReturn(Optional.of(CardUtil.getValidCard1()));
+        when(cardRepository.findById(ConstantUtil.VALID_CARD_ID_2)).thenReturn(Optional.of(CardUtil.getValidCard2()));
+
+        assertThrows(
+                InsufficientBalanceException.class,
+                () -> cardService.transfer(CardUtil.getTransferRequestDtoWith99999Balance(), USER_ID, null)
+        );
+    }
+
+    @Test
+    void transfer_atomic_CardIsNotActive() {
+        ReflectionTestUtils.setField(cardService, "transferMode", TransferMode.ATOMIC);
+        Card to = CardUtil.getValidCard2();
+        to.setStatus(CardStatus.BLOCKED);
+
+        when(cardRepository.creditActiveCard(any(), any(), any())).thenReturn(0);
+        when(cardRepository.findById(ConstantUtil.VALID_CARD_ID_1)).thenReturn(Optional.of(CardUtil.getValidCard1()));
+        when(cardRepository.findById(ConstantUtil.VALID_CARD_ID_2)).thenReturn(Optional.of(to));
+
+        assertThrows(
+                CardIsNotActiveException.class,
+                () -> cardService.transfer(CardUtil.getValidTransferRequestDto(), USER_ID, null)
+        );
+
+        verify(cardRepository, never()).debitActiveCard(any(), any(), any());
+    }
+
+    @Test
+    void transfer_atomic_conflict() {
+        ReflectionTestUtils.setField(cardService, "transferMode", TransferMode.ATOMIC);
+
+        when(cardRepository.creditActiveCard(any(), any(), any())).thenReturn(0);
+        when(cardRepository.findById(ConstantUtil.VALID_CARD_ID_1)).thenReturn(Optional.of(CardUtil.getValidCard1()));
+        when(cardRepository.findById(ConstantUtil.VALID_CARD_ID_2)).thenReturn(Optional.of(CardUtil.getValidCard2()));
+
+        assertThrows(
+                TransferConflictException.class,
+                () -> cardService.transfer(CardUtil.getValidTransferRequestDto(), USER_ID, null)
+        );
+    }
+
+    @Test
+    void transfer_optimistic_success() {
+        ReflectionTestUtils.setField(cardService, "transferMode", TransferMode.OPTIMISTIC);
+        Card from = CardUtil.getValidCard1();
+        Card to = CardUtil.getValidCard2();
+        when(cardRepository.findById(ConstantUtil.VALID_CARD_ID_1)).thenReturn(Optional.of(from));
+        when(cardRepository.findById(ConstantUtil.VALID_CARD_ID_2)).thenReturn(Optional.of(to));
+
+        String result = cardService.transfer(CardUtil.getValidTransferRequestDto(), USER_ID, null);
+
+        assertEquals("Перевод прошёл успешно", result);
+        assertEquals(BigDecimal.valueOf(100), from.getBalance());
+        assertEquals(BigDecimal.valueOf(1200), to.getBalance());
+        verify(cardRepository, never()).findAllByIdInForUpdate(any());
+        verify(transactionTemplate, times(1)).executeWithoutResult(any());
+    }
+
+    @Test
+    void transfer_optimistic_retriesAfterVersionConflict() {
+        ReflectionTestUtils.setField(cardService, "transferMode", TransferMode.OPTIMISTIC);
+        ReflectionTestUtils.setField(cardService, "optimisticBackoffMs", 1L);
+        when(cardRepository.findById(ConstantUtil.VALID_CARD_ID_1)).thenReturn(Optional.of(CardUtil.getValidCard1()));
+        when(cardRepository.findById(ConstantUtil.VALID_CARD_ID_2)).thenReturn(Optional.of(CardUtil.getValidCard2()));
+        doThrow(new ObjectOptimisticLockingFailureException(Card.class, ConstantUtil.VALID_CARD_ID_1))
+                .doAnswer(invocation -> {
+                    invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+                    return null;
+                })
+                .when(transactionTemplate).executeWithoutResult(any());
+
+        String result = cardService.transfer(CardUtil.getValidTransferRequestDto(), USER_ID, null);
+
+        assertEquals("Перевод прошёл успешно", result);
+        verify(transactionTemplate, times(2)).executeWithoutResult(any());
+    }
+
+    @Test
+    void transfer_optimistic_conflictAfterMaxAttempts() {
+        ReflectionTestUtils.setField(cardService, "transferMode", TransferMode.OPTIMISTIC);
+        ReflectionTestUtils.setField(cardService, "optimisticMaxAttempts", 3);
+        ReflectionTestUtils.setField(cardService, "optimisticBackoffMs", 1L);
+        doThrow(new ObjectOptimisticLockingFailureException(Card.class, ConstantUtil.VALID_CARD_ID_1))
+                .when(transactionTemplate).executeWithoutResult(any());
+
+        assertThrows(
+                TransferConflictException.class,
+                () -> cardService.transfer(CardUtil.getValidTransferRequestDto(), USER_ID, null)
+        );
+
+        verify(transactionTemplate, times(3)).executeWithoutResult(any());
+    }
+
+    @Test
+    void getCardTransactions_firstPage_returnsNextCursor() {
+        Instant now = Instant.parse("2025-06-01T10:00:00Z");
+        List<CardTransaction> transactions = List.of(
+                CardUtil.getCardTransaction(3L, now),
+                CardUtil.getCardTransaction(2L, now.minusSeconds(1)),
+                CardUtil.getCardTransaction(1L, now.minusSeconds(2)));
+        when(cardRepository.findById(ConstantUtil.VALID_CARD_ID_1)).thenReturn(Optional.of(CardUtil.getValidCard1()));
+        when(cardTransactionRepository.findPageByCardId(ConstantUtil.VALID_CARD_ID_1,
+                TransactionCursor.FIRST_PAGE.createdAt(), TransactionCursor.FIRST_PAGE.id(), 3))
+                .thenReturn(transactions);
+
+        CardTransactionPageResponseDto result = cardService.getCardTransactions(
+                ConstantUtil.VALID_CARD_ID_1, ConstantUtil.VALID_USER_ID_1, null, 2);
+
+        assertEquals(2, result.content().size());
+        assertEquals(new TransactionCursor(now.minusSeconds(1), 2L), TransactionCursor.decode(result.nextCursor()));
+    }
+
+    @Test
+    void getCardTransactions_lastPage_returnsNoCursor() {
+        Instant createdAt = Instant.parse("2025-06-01T10:00:00Z");
+        String cursor = new TransactionCursor(createdAt, 10L).encode();
+        when(cardRepository.findById(ConstantUtil.VALID_CARD_ID_1)).thenReturn(Optional.of(CardUtil.getValidCard1()));
+        when(cardTransactionRepository.findPageByCardId(ConstantUtil.VALID_CARD_ID_1, createdAt, 10L, 21))
+                .thenReturn(List.of(CardUtil.getCardTransaction(9L, createdAt.minusSeconds(1))));
+
+        CardTransactionPageResponseDto result = cardService.getCardTransactions(
+                ConstantUtil.VALID_CARD_ID_1, ConstantUtil.VALID_USER_ID_1, cursor, 20);
+
+        assertEquals(1, result.content().size());
+        assertNull(result.nextCursor());
+    }
+
+    @Test
+    void getCardTransactions_invalidCursor() {
+        when(cardRepository.findById(ConstantUtil.VALID_CARD_ID_1)).thenReturn(Optional.of(CardUtil.getValidCard1()));
+
+        assertThrows(
+                BadRequestException.class,
+                () -> cardService.getCardTransactions(
+                        ConstantUtil.VALID_CARD_ID_1, ConstantUtil.VALID_USER_ID_1, "not-a-cursor", 20)
+        );
+
+        verify(cardTransactionRepository, never()).findPageByCardId(any(), any(), any(Long.class), any(Integer.class));
+    }
+
+    @Test
+    void getCardTransactions_notOwned() {
+        when(cardRepository.findById(ConstantUtil.VALID_CARD_ID_1))
+                .thenReturn(Optional.of(CardUtil.getValidCard1WithRandomUser()));
+
+        assertThrows(
+                CardNotOwnedException.class,
+                () -> cardService.getCardTransactions(
+                        ConstantUtil.VALID_CARD_ID_1, ConstantUtil.VALID_USER_ID_1, null, 20)
+        );
+    }
+
+    @Test
+    void transfer_withIdempotencyKey_recordsKeyAndCachesResult() {
+        when(cardRepository.findAllByIdInForUpdate(any()))
+                .thenReturn(List.of(CardUtil.getValidCard1(), CardUtil.getValidCard2()));
+
+        String result = cardService.transfer(CardUtil.getValidTransferRequestDto(), USER_ID, IDEMPOTENCY_KEY);
+
+        assertEquals("Перевод прошёл успешно", result);
+        ArgumentCaptor<CardTransaction> ledgerEntry = ArgumentCaptor.forClass(CardTransaction.class);
+        verify(cardTransactionRepository).save(ledgerEntry.capture());
+        assertEquals(SCOPED_IDEMPOTENCY_KEY, ledgerEntry.getValue().getIdempotencyKey());
+        verify(transferIdempotencyCache).put(eq(SCOPED_IDEMPOTENCY_KEY), any(CardTransaction.class));
+    }
+
+    @Test
+    void transfer_replayFromCache_doesNotTransferAgain() {
+        when(transferIdempotencyCache.getIfPresent(SCOPED_IDEMPOTENCY_KEY)).thenReturn(getCompletedTransfer(200));
+
+        String result = cardService.transfer(CardUtil.getValidTransferRequestDto(), USER_ID, IDEMPOTENCY_KEY);
+
+        assertEquals("Перевод прошёл успешно", result);
+        verify(cardTransactionRepository, never()).findByIdempotencyKey(any());
+        verify(transactionTemplate, never()).executeWithoutResult(any());
+    }
+
+    @Test
+    void transfer_replayFromLedger_doesNotTransferAgain() {
+        CardTransaction completed = getCompletedTransfer(200);
+        when(cardTransactionRepository.findByIdempotencyKey(SCOPED_IDEMPOTENCY_KEY)).thenReturn(Optional.of(completed));
+
+        String result = cardService.transfer(CardUtil.getValidTransferRequestDto(), USER_ID, IDEMPOTENCY_KEY);
+
+        assertEquals("Перевод прошёл успешно", result);
+        verify(transferIdempotencyCache).put(SCOPED_IDEMPOTENCY_KEY, completed);
+        verify(transactionTemplate, never()).executeWithoutResult(any());
+    }
+
+    @Test
+    void transfer_idempotencyKeyReusedForOtherTransfer() {
+        when(cardTransactionRepository.findByIdempotencyKey(SCOPED_IDEMPOTENCY_KEY))
+                .thenReturn(Optional.of(getCompletedTransfer(500)));
+
+        assertThrows(
+                BadRequestException.class,
+                () -> cardService.transfer(CardUtil.getValidTransferRequestDto(), USER_ID, IDEMPOTENCY_KEY)
+        );
+
+        verify(transactionTemplate, never()).executeWithoutResult(any());
+    }
+
+    @Test
+    void transfer_concurrentDuplicate_returnsStoredResult() {
+        when(cardTransactionRepository.findByIdempotencyKey(SCOPED_IDEMPOTENCY_KEY))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(getCompletedTransfer(200)));
+        doThrow(new DataIntegrityViolationException("duplicate key"))
+                .when(transactionTemplate).executeWithoutResult(any());
+
+        String result = cardService.transfer(CardUtil.getValidTransferRequestDto(), USER_ID, IDEMPOTENCY_KEY);
+
+        assertEquals("Перевод прошёл успешно", result);
+    }
+
+    @Test
+    void transfer_tooLongIdempotencyKey() {
+        assertThrows(
+                BadRequestException.class,
+                () -> cardService.transfer(CardUtil.getValidTransferRequestDto(), USER_ID, "k".repeat(64))
+        );
+    }
+
+    @Test
+    void transferBatch_appliesTransfersInOrderAndReportsFailures() {
+        Card first = CardUtil.getValidCard1();
+        Card second = CardUtil.getValidCard2();
+        second.setOwnerId(ConstantUtil.VALID_USER_ID_1);
+        when(cardRepository.findAllByIdInForUpdate(any())).thenReturn(List.of(first, second));
+
+        CardBatchTransferRequestDto request = CardBatchTransferRequestDto.builder()
+                .transfers(List.of(
+                        getBatchItem(ConstantUtil.VALID_CARD_ID_1, ConstantUtil.VALID_CARD_ID_2, 200),
+                        getBatchItem(ConstantUtil.VALID_CARD_ID_1, ConstantUtil.VALID_CARD_ID_2, 200),
+                        getBatchItem(ConstantUtil.VALID_CARD_ID_2, ConstantUtil.VALID_CARD_ID_1, 50),
+                        getBatchItem(ConstantUtil.VALID_CARD_ID_1, ConstantUtil.VALID_CARD_ID_1, 10),
+                        getBatchItem(ConstantUtil.VALID_CARD_ID_1, UUID.randomUUID(), 10)))
+                .build();
+
+        CardBatchTransferResponseDto result = cardService.transferBatch(request, ConstantUtil.VALID_USER_ID_1);
+
+        assertEquals(2, result.succeeded());
+        assertEquals(3, result.failed());
+        assertTrue(result.results().get(0).success());
+        assertFalse(result.results().get(1).success());
+        assertTrue(result.results().get(2).success());
+        assertFalse(result.results().get(3).success());
+        assertFalse(result.results().get(4).success());
+        assertEquals(BigDecimal.valueOf(150), first.getBalance());
+        assertEquals(BigDecimal.valueOf(1150), second.getBalance());
+
+        ArgumentCaptor<Collection<UUID>> lockedIds = ArgumentCaptor.forClass(Collection.class);
+        verify(cardRepository, times(1)).findAllByIdInForUpdate(lockedIds.capture());
+        assertEquals(3, lockedIds.getValue().size());
+        verify(cardRepository, never()).save(any());
+
+        ArgumentCaptor<List<CardTransaction>> ledgerEntries = ArgumentCaptor.forClass(List.class);
+        verify(cardTransactionRepository).saveAll(ledgerEntries.capture());
+        assertEquals(2, ledgerEntries.getValue().size());
+    }
+
+    @Test
+    void transferBatch_rejectsItemsOfAnotherUser() {
+        Card first = CardUtil.getValidCard1();
+        Card second = CardUtil.getValidCard2();
+        when(cardRepository.findAllByIdInForUpdate(any())).thenReturn(List.of(first, second));
+
+        CardBatchTransferRequestDto request = CardBatchTransferRequestDto.builder()
+                .transfers(List.of(getBatchItem(ConstantUtil.VALID_CARD_ID_1, ConstantUtil.VALID_CARD_ID_2, 50)))
+                .build();
+
+        CardBatchTransferResponseDto result = cardService.transferBatch(request, ConstantUtil.ANOTHER_USER_ID);
+
+        assertEquals(0, result.succeeded());
+        assertFalse(result.results().get(0).success());
+        assertEquals(BigDecimal.valueOf(300), first.getBalance());
+        verify(cardTransactionRepository).saveAll(List.of());
+    }
+
+    private CardTransferRequestDto getBatchItem(UUID fromCardId, UUID toCardId, long amount) {
+        return CardTransferRequestDto.builder()
+                .fromCardId(fromCardId)
+                .toCardId(toCardId)
+                .amount(BigDecimal.valueOf(amount))
+                .build();
+    }
+
+    private CardTransaction getCompletedTransfer(long amount) {
+        return CardTransaction.builder()
+                .id(1L)
+                .fromCardId(ConstantUtil.VALID_CARD_ID_1)
+                .toCardId(ConstantUtil.VALID_CARD_ID_2)
+                .amount(BigDecimal.valueOf(amount))
+                .idempotencyKey(SCOPED_IDEMPOTENCY_KEY)
+                .build();
     }
 
-}
\ No newline at end of file
+}
@@ -5,8 +5,9 @@ import com.example.bankcards.dto.request.UserUpdateRequestDto;
 import com.example.bankcards.dto.response.UserInfoResponseDto;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.NotFoundException;
-import com.example.bankcards.repository.RoleRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.repository.projection.UserInfoRow;
+import com.example.bankcards.security.RoleRegistry;
 import com.example.bankcards.service.impl.UserServiceImpl;
 import com.example.bankcards.util.ConstantUtil;
 import com.example.bankcards.util.RoleUtil;
@@ -31,6 +32,7 @@ import java.util.UUID;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -43,7 +45,7 @@ class UserServiceImplTest {
     private UserRepository userRepository;
 
     @Mock
-    private RoleRepository roleRepository;
+    private RoleRegistry roleRegistry;
 
     @Mock
     private TextEncryptor textEncryptor;
@@ -63,7 +65,7 @@ class UserServiceImplTest {
         User user = UserUtil.getValidUser;
         UserInfoResponseDto dto = UserUtil.getValidUserRoleUserInfoResponseDto();
 
-        when(roleRepository.findByNameIn(request.roles())).thenReturn(Set.of(RoleUtil.getRoleUser()));
+        when(roleRegistry.findByNames(request.roles())).thenReturn(Set.of(RoleUtil.getRoleUser()));
         when(userRepository.save(any(User.class))).thenReturn(user);
         when(userMapper.toDto(user)).thenReturn(dto);
 
@@ -96,16 +98,18 @@ class UserServiceImplTest {
     @Test
     void getAllUsers_success() {
         Pageable pageable = Pageable.unpaged();
-        User user = UserUtil.getValidUser;
+        UserInfoRow row = new UserInfoRow(ConstantUtil.VALID_USERNAME,
+                ConstantUtil.VALID_USER_FIRSTNAME, ConstantUtil.VALID_USER_LASTNAME, "USER");
         UserInfoResponseDto dto = UserUtil.getValidUserRoleUserInfoResponseDto();
 
-        when(userRepository.findAll(pageable)).thenReturn(new PageImpl<>(List.of(user)));
-        when(userMapper.toDto(user)).thenReturn(dto);
+        when(userRepository.findUserInfoPage(pageable)).thenReturn(new PageImpl<>(List.of(row)));
+        when(userMapper.toDto(row)).thenReturn(dto);
 
         Page<UserInfoResponseDto> result = userService.getAllUsers(pageable);
 
         assertEquals(1, result.getTotalElements());
         assertEquals(dto, result.getContent().get(0));
+        verify(userRepository, never()).findAll(any(Pageable.class));
     }
 
     @Test
@@ -126,7 +130,7 @@ class UserServiceImplTest {
         UserInfoResponseDto dto = UserUtil.getValidUserRoleUserInfoResponseDto();
 
         when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        when(roleRepository.findByNameIn(request.roles())).thenReturn(Set.of(RoleUtil.getRoleAdmin()));
+        when(roleRegistry.findByNames(request.roles())).thenReturn(Set.of(RoleUtil.getRoleAdmin()));
         when(userRepository.save(user)).thenReturn(user);
         when(userMapper.toDto(user)).thenReturn(dto);
 
@@ -1,8 +1,15 @@
 package com.example.bankcards.util;
 
 import com.example.bankcards.dto.request.AuthRequestDto;
+import com.example.bankcards.dto.request.RefreshTokenRequestDto;
 import com.example.bankcards.dto.response.AuthResponseDto;
+import com.example.bankcards.entity.enums.RoleName;
+import com.example.bankcards.security.AuthenticatedUser;
 import lombok.experimental.UtilityClass;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.util.Set;
 
 /**
  * Класс для создания запросов аутентификации и ответов на эти запросы для тестовых классов
@@ -19,6 +26,19 @@ public class AuthUtil {
     }
 
     public AuthResponseDto getValidAuthResponseDto() {
-        return new AuthResponseDto(ConstantUtil.VALID_JWT_TOKEN);
+        return new AuthResponseDto(ConstantUtil.VALID_JWT_TOKEN, ConstantUtil.VALID_REFRESH_TOKEN);
+    }
+
+    public RefreshTokenRequestDto getValidRefreshTokenRequestDto() {
+        return new RefreshTokenRequestDto(ConstantUtil.VALID_REFRESH_TOKEN);
+    }
+
+    public AuthenticatedUser getValidAuthenticatedUser() {
+        return new AuthenticatedUser(ConstantUtil.VALID_USER_ID_1, Set.of(RoleName.USER));
+    }
+
+    public Authentication getValidUserAuthentication() {
+        AuthenticatedUser user = getValidAuthenticatedUser();
+        return new UsernamePasswordAuthenticationToken(user, null, user.authorities());
     }
 }
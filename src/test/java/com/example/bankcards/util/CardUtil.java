@@ -4,10 +4,12 @@ import com.example.bankcards.dto.request.CardCreateRequestDto;
 import com.example.bankcards.dto.request.CardTransferRequestDto;
 import com.example.bankcards.dto.response.CardInfoResponseDto;
 import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardTransaction;
 import com.example.bankcards.entity.enums.CardStatus;
 import lombok.experimental.UtilityClass;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.UUID;
 
@@ -46,24 +48,21 @@ public class CardUtil {
         return CardTransferRequestDto.builder()
                 .fromCardId(ConstantUtil.VALID_CARD_ID_1)
                 .toCardId(ConstantUtil.VALID_CARD_ID_1)
-                .amount(BigDecimal.valueOf(200))
-                .userId(ConstantUtil.VALID_USER_ID_1).build();
+                .amount(BigDecimal.valueOf(200)).build();
     }
 
     public CardTransferRequestDto getTransferRequestDtoWith99999Balance() {
         return CardTransferRequestDto.builder()
                 .fromCardId(ConstantUtil.VALID_CARD_ID_1)
                 .toCardId(ConstantUtil.VALID_CARD_ID_2)
-                .amount(BigDecimal.valueOf(99999))
-                .userId(ConstantUtil.VALID_USER_ID_1).build();
+                .amount(BigDecimal.valueOf(99999)).build();
     }
 
     public CardTransferRequestDto getValidTransferRequestDto() {
         return CardTransferRequestDto.builder()
                 .fromCardId(ConstantUtil.VALID_CARD_ID_1)
                 .toCardId(ConstantUtil.VALID_CARD_ID_2)
-                .amount(BigDecimal.valueOf(200))
-                .userId(ConstantUtil.VALID_USER_ID_1).build();
+                .amount(BigDecimal.valueOf(200)).build();
     }
 
     public CardInfoResponseDto getValidCardInfoResponseDto() {
@@ -88,10 +87,21 @@ public class CardUtil {
 
     public CardCreateRequestDto getValidCardCreateRequestDto() {
         return CardCreateRequestDto.builder()
+                .ownerId(ConstantUtil.VALID_USER_ID_1)
                 .number(ConstantUtil.CARD_NUMBER_1)
                 .status(CardStatus.ACTIVE)
                 .expiryDate(LocalDate.now().plusYears(3))
                 .balance(BigDecimal.valueOf(300))
                 .build();
     }
+
+    public CardTransaction getCardTransaction(Long id, Instant createdAt) {
+        return CardTransaction.builder()
+                .id(id)
+                .fromCardId(ConstantUtil.VALID_CARD_ID_1)
+                .toCardId(ConstantUtil.VALID_CARD_ID_2)
+                .amount(BigDecimal.valueOf(100))
+                .createdAt(createdAt)
+                .build();
+    }
 }
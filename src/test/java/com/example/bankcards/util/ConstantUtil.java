@@ -14,6 +14,7 @@ public class ConstantUtil {
     public final UUID VALID_CARD_ID_2 = UUID.fromString("01319f65-a6c5-49b3-94f9-4cf2bfd9613a");
     public final UUID VALID_USER_ID_1 = UUID.fromString("01319f65-a6c5-49b3-94f9-4cf2bfd9613a");
     public final UUID VALID_USER_ID_2 = UUID.fromString("01319f65-a6c5-49b3-94f9-4cf2bfd9613a");
+    public final UUID ANOTHER_USER_ID = UUID.fromString("7c1f0d2e-3b5a-4e8f-9a61-2d4c8b9e0f13");
     public final String VALID_USER_FIRSTNAME = "Иван";
     public final String VALID_USER_LASTNAME = "Иванов";
     public final String VALID_USERNAME = "Dodo";
@@ -22,9 +23,12 @@ public class ConstantUtil {
     public final String ADMIN_USERS_CONTROLLER_URL = "/api/admin/users";
     public final String REGISTER_URL = "/auth/register";
     public final String LOGIN_URL = "/auth/login";
+    public final String REFRESH_URL = "/auth/refresh";
     public final String ROLE_USER = "USER";
     public final String ROLE_ADMIN = "ADMIN";
     public final String VALID_JWT_TOKEN = "jwt";
+    public final String VALID_REFRESH_TOKEN = "refresh-token";
+    public final String VALID_REFRESH_TOKEN_HASH = "refresh-token-hash";
     public final String MASKED_CARD_NUMBER_1 = "**** **** **** 1234";
     public final String MASKED_CARD_NUMBER_2 = "**** **** **** 5678";
     public final String CARD_NUMBER_1 = "1234123412341234";